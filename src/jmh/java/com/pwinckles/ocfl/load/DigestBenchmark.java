@@ -0,0 +1,60 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.api.model.DigestAlgorithm;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Digests content in chunks of the buffer size, the way file content is digested as it's copied into a repository.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DigestBenchmark {
+
+    private static final int CONTENT_SIZE = 16 * 1024 * 1024;
+
+    @Param({"sha512", "sha256"})
+    private String algorithm;
+
+    @Param({"4096", "65536", "1048576"})
+    private int bufferSize;
+
+    private byte[] content;
+    private MessageDigest digest;
+
+    @Setup
+    public void setup() {
+        content = new byte[CONTENT_SIZE];
+        try (var in = new RandomInputStream(CONTENT_SIZE, 1, 0)) {
+            in.readNBytes(content, 0, CONTENT_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+        digest = DigestAlgorithm.fromOcflName(algorithm).getMessageDigest();
+    }
+
+    @Benchmark
+    public byte[] digest() {
+        for (var offset = 0; offset < content.length; offset += bufferSize) {
+            digest.update(content, offset, Math.min(bufferSize, content.length - offset));
+        }
+        return digest.digest();
+    }
+}
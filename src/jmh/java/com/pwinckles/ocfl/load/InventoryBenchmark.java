@@ -0,0 +1,89 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.api.OcflConfig;
+import io.ocfl.api.model.DigestAlgorithm;
+import io.ocfl.api.model.OcflVersion;
+import io.ocfl.api.model.VersionInfo;
+import io.ocfl.core.inventory.InventoryMapper;
+import io.ocfl.core.model.Inventory;
+import io.ocfl.core.model.Version;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializes and parses the inventory of a single version object with the default inventory mapper.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryBenchmark {
+
+    private static final String OBJECT_ID = "inventory-benchmark";
+
+    @Param({"1000", "10000", "100000"})
+    private int fileCount;
+
+    @Param({"2"})
+    private int dirDepth;
+
+    private InventoryMapper mapper;
+    private Inventory inventory;
+    private byte[] json;
+
+    @Setup
+    public void setup() {
+        var objectFiles =
+                FileSpec.parse(Map.of("1KB", fileCount), dirDepth, 10, 0, 0).sample(1);
+
+        var md = DigestAlgorithm.sha512.getMessageDigest();
+        var hex = HexFormat.of();
+        var builder =
+                Inventory.builderFromStub(OBJECT_ID, new OcflConfig().setOcflVersion(OcflVersion.OCFL_1_1), OBJECT_ID);
+        var version = Version.builder()
+                .created(OffsetDateTime.now(ZoneOffset.UTC))
+                .versionInfo(new VersionInfo().setMessage("benchmark").setUser("load-tester", null));
+
+        objectFiles.keySet().forEach(logicalPath -> {
+            // The digest only has to be unique and the right length
+            var digest = hex.formatHex(md.digest(logicalPath.getBytes(StandardCharsets.UTF_8)));
+            builder.addFileToManifest(digest, "v1/content/" + logicalPath);
+            version.addFile(digest, logicalPath);
+        });
+
+        inventory = builder.addHeadVersion(version.build()).build();
+        mapper = InventoryMapper.defaultMapper();
+        json = serialize();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        var out = new ByteArrayOutputStream(json == null ? 1024 : json.length);
+        mapper.write(out, inventory);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Inventory parse() {
+        return mapper.read(OBJECT_ID, DigestAlgorithm.sha512, new ByteArrayInputStream(json));
+    }
+}
@@ -0,0 +1,66 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.api.model.DigestAlgorithm;
+import io.ocfl.core.extension.storage.layout.HashedNTupleLayoutExtension;
+import io.ocfl.core.extension.storage.layout.config.HashedNTupleLayoutConfig;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Maps object ids to object root paths with the hashed n-tuple layout.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LayoutBenchmark {
+
+    private static final int ID_COUNT = 1024;
+    private static final String ID_CHARS = "abcdefghijklmnopqrstuvwxyz0123456789:/-_";
+
+    @Param({"16", "64", "256"})
+    private int idLength;
+
+    @Param({"sha256", "sha512"})
+    private String digestAlgorithm;
+
+    private HashedNTupleLayoutExtension layout;
+    private String[] ids;
+    private int next;
+
+    @Setup
+    public void setup() {
+        layout = new HashedNTupleLayoutExtension();
+        layout.init(new HashedNTupleLayoutConfig().setDigestAlgorithm(DigestAlgorithm.fromOcflName(digestAlgorithm)));
+
+        var random = new SplittableRandom(1);
+        ids = new String[ID_COUNT];
+        for (var i = 0; i < ID_COUNT; i++) {
+            var id = new StringBuilder(idLength);
+            for (var j = 0; j < idLength; j++) {
+                id.append(ID_CHARS.charAt(random.nextInt(ID_CHARS.length())));
+            }
+            ids[i] = id.toString();
+        }
+    }
+
+    @Benchmark
+    public String mapObjectId() {
+        var id = ids[next];
+        next = (next + 1) % ID_COUNT;
+        return layout.mapObjectId(id);
+    }
+}
@@ -0,0 +1,63 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.core.util.FileUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Walks a generated test object of empty files and resolves the logical path of every file, the way new-obj-test
+ * does before handing files to processing threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathWalkBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int fileCount;
+
+    @Param({"0", "3"})
+    private int dirDepth;
+
+    private Path root;
+    private Path objectPath;
+
+    @Setup
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("ocfl-path-walk");
+        var objectFiles =
+                FileSpec.parse(Map.of("0B", fileCount), dirDepth, 10, 0, 0).sample(1);
+        objectPath = new ObjectGenerator(root, 1, 0).generate(objectFiles);
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtil.safeDeleteDirectory(root);
+    }
+
+    @Benchmark
+    public void walk(Blackhole blackhole) {
+        for (var file : NewObjectLoadTest.findFiles(objectPath)) {
+            blackhole.consume(NewObjectLoadTest.logicalPath(objectPath, file));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.pwinckles.ocfl.load;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A schedule of operation arrival rates for open-loop load tests, written as comma separated {@code RATE[@DURATION]}
+ * steps, eg {@code 0.1/s@PT5M,1/s}. The last step's rate is held until the test completes.
+ */
+public final class ArrivalSchedule {
+
+    private static final Pattern RATE_PATTERN = Pattern.compile("(\\d+(?:\\.\\d+)?)/(s|m|h)");
+
+    private record Step(long intervalNanos, long durationNanos) {}
+
+    private final List<Step> steps;
+    private final String spec;
+
+    private ArrivalSchedule(List<Step> steps, String spec) {
+        this.steps = steps;
+        this.spec = spec;
+    }
+
+    public static ArrivalSchedule parse(List<String> steps) {
+        if (steps == null || steps.isEmpty()) {
+            throw new IllegalArgumentException("Arrival schedule must contain 1 or more steps.");
+        }
+
+        var parsed = new ArrayList<Step>(steps.size());
+        for (var i = 0; i < steps.size(); i++) {
+            var step = steps.get(i);
+            var last = i == steps.size() - 1;
+            var parts = step.split("@", 2);
+
+            var matcher = RATE_PATTERN.matcher(parts[0].trim());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid arrival rate: " + step);
+            }
+            var count = Double.parseDouble(matcher.group(1));
+            if (count <= 0) {
+                throw new IllegalArgumentException("Arrival rate must be greater than 0: " + step);
+            }
+            var perNanos =
+                    switch (matcher.group(2)) {
+                        case "s" -> 1_000_000_000L;
+                        case "m" -> 60_000_000_000L;
+                        default -> 3_600_000_000_000L;
+                    };
+            var intervalNanos = Math.max(1, Math.round(perNanos / count));
+
+            var durationNanos = Long.MAX_VALUE;
+            if (parts.length == 2) {
+                try {
+                    var duration = Duration.parse(parts[1].trim());
+                    if (duration.isNegative() || duration.isZero()) {
+                        throw new IllegalArgumentException("Arrival step duration must be greater than 0: " + step);
+                    }
+                    durationNanos = duration.toNanos();
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("Invalid arrival step duration: " + step, e);
+                }
+            } else if (!last) {
+                throw new IllegalArgumentException("Every arrival step except the last must have a duration: " + step);
+            }
+
+            parsed.add(new Step(intervalNanos, durationNanos));
+        }
+
+        return new ArrivalSchedule(List.copyOf(parsed), String.join(",", steps));
+    }
+
+    public long intervalNanos(long elapsedNanos) {
+        var remaining = elapsedNanos;
+        for (var step : steps) {
+            if (remaining < step.durationNanos()) {
+                return step.intervalNanos();
+            }
+            remaining -= step.durationNanos();
+        }
+        return steps.get(steps.size() - 1).intervalNanos();
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,59 @@
+package com.pwinckles.ocfl.load;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * How a fixture is cloned before it's moved into the repository. Clones must be on the same filesystem as the fixture.
+ */
+public enum CloneMode {
+    HARDLINK,
+    /**
+     * Requires a filesystem that supports reflinks, such as XFS or Btrfs.
+     */
+    REFLINK;
+
+    public void createClone(Path source, Path target) {
+        switch (this) {
+            case HARDLINK -> hardlink(source, target);
+            case REFLINK -> reflink(source, target);
+        }
+    }
+
+    private static void hardlink(Path source, Path target) {
+        try (var stream = Files.walk(source)) {
+            for (var path : (Iterable<Path>) stream::iterator) {
+                var link = target.resolve(source.relativize(path));
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(link);
+                } else {
+                    Files.createLink(link, path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+
+    private static void reflink(Path source, Path target) {
+        try {
+            var process = new ProcessBuilder(
+                            List.of("cp", "-R", "--reflink=always", source.toString(), target.toString()))
+                    .redirectErrorStream(true)
+                    .start();
+            var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            if (process.waitFor() != 0) {
+                throw new IllegalStateException("Failed to reflink " + source + " to " + target + ": " + output.trim());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted reflinking " + source, e);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.pwinckles.ocfl.load;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The coordinator of a distributed load test, which moves workers between phases together and merges their intervals.
+ *
+ * @see ClusterProtocol
+ */
+public class ClusterCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterCoordinator.class);
+
+    private static final Duration HELLO_TIMEOUT = Duration.ofSeconds(30);
+
+    public record WorkerResult(String name, long operations, long bytes, boolean completed) {}
+
+    public record Results(IntervalRecorder.Totals totals, List<WorkerResult> workers) {}
+
+    private final int port;
+    private final int workerCount;
+    private final Duration connectTimeout;
+    private final IntervalRecorder intervalRecorder;
+
+    private volatile boolean measuring;
+
+    public ClusterCoordinator(int port, int workerCount, Duration connectTimeout, IntervalRecorder intervalRecorder) {
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Port must be between 0 and 65535.");
+        }
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Worker count must be 1 or more.");
+        }
+        this.port = port;
+        this.workerCount = workerCount;
+        this.connectTimeout = Objects.requireNonNull(connectTimeout, "connectTimeout cannot be null");
+        if (connectTimeout.isNegative() || connectTimeout.isZero()) {
+            throw new IllegalArgumentException("Connect timeout must be greater than 0.");
+        }
+        this.intervalRecorder = Objects.requireNonNull(intervalRecorder, "intervalRecorder cannot be null");
+    }
+
+    public Results run() throws InterruptedException {
+        var workers = new ArrayList<Worker>(workerCount);
+        var warmedUp = new CountDownLatch(workerCount);
+        var done = new CountDownLatch(workerCount);
+
+        try {
+            try (var server = new ServerSocket(port)) {
+                log.info("Waiting for {} workers to connect on port {}", workerCount, server.getLocalPort());
+                var deadline = System.nanoTime() + connectTimeout.toNanos();
+                while (workers.size() < workerCount) {
+                    var remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+                    if (remainingMillis <= 0) {
+                        throw connectTimedOut(workers.size());
+                    }
+                    server.setSoTimeout((int) Math.min(remainingMillis, Integer.MAX_VALUE));
+                    Socket socket;
+                    try {
+                        socket = server.accept();
+                    } catch (SocketTimeoutException e) {
+                        throw connectTimedOut(workers.size());
+                    }
+                    try {
+                        var worker = new Worker(socket, warmedUp, done);
+                        workers.add(worker);
+                        log.info("Worker {} connected ({} of {})", worker.name, workers.size(), workerCount);
+                    } catch (IOException e) {
+                        log.warn(
+                                "Dropping connection from {} that didn't say HELLO: {}",
+                                socket.getRemoteSocketAddress(),
+                                e.getMessage());
+                        socket.close();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
+
+            intervalRecorder.start();
+            workers.forEach(Worker::start);
+
+            log.info("Starting {} workers", workerCount);
+            workers.forEach(worker -> worker.send(ClusterProtocol.START));
+
+            warmedUp.await();
+
+            log.info("All workers have completed their warmups. Starting measurement.");
+            measuring = true;
+            intervalRecorder.startMeasuring();
+            workers.forEach(worker -> worker.send(ClusterProtocol.MEASURE));
+
+            done.await();
+
+            var totals = intervalRecorder.stop();
+            log.info("All workers are done");
+
+            return new Results(
+                    totals,
+                    workers.stream()
+                            .map(worker -> new WorkerResult(
+                                    worker.name, worker.operations.sum(), worker.bytes.sum(), worker.completed))
+                            .toList());
+        } finally {
+            workers.forEach(Worker::close);
+        }
+    }
+
+    private IllegalStateException connectTimedOut(int connected) {
+        return new IllegalStateException(
+                "Only " + connected + " of " + workerCount + " workers connected within " + connectTimeout + ".");
+    }
+
+    private class Worker extends Thread {
+        private final Socket socket;
+        private final BufferedReader reader;
+        private final BufferedWriter writer;
+        private final String name;
+        private final CountDownLatch warmedUp;
+        private final CountDownLatch done;
+        private final LongAdder operations = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private boolean countedWarmedUp;
+        private volatile boolean completed;
+
+        Worker(Socket socket, CountDownLatch warmedUp, CountDownLatch done) throws IOException {
+            this.socket = socket;
+            this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            this.warmedUp = warmedUp;
+            this.done = done;
+
+            // Anything that connects must identify itself promptly, so that it can't stall the accept loop
+            socket.setSoTimeout(Math.toIntExact(HELLO_TIMEOUT.toMillis()));
+            var hello = reader.readLine();
+            if (hello == null || !hello.startsWith(ClusterProtocol.HELLO + " ")) {
+                throw new ProtocolException("Expected HELLO from worker, but received: " + hello);
+            }
+            socket.setSoTimeout(0);
+            this.name = hello.substring(ClusterProtocol.HELLO.length() + 1);
+
+            setName("worker-" + name);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                String message;
+                while ((message = reader.readLine()) != null) {
+                    var fields = message.split(" ");
+                    switch (fields[0]) {
+                        case ClusterProtocol.WARMED_UP -> countWarmedUp();
+                        case ClusterProtocol.INTERVAL -> recordInterval(fields);
+                        case ClusterProtocol.DONE -> {
+                            completed = true;
+                            log.info("Worker {} is done", name);
+                            return;
+                        }
+                        default -> log.warn("Ignoring unknown message from worker {}: {}", name, fields[0]);
+                    }
+                }
+                log.error("Worker {} disconnected before its run was complete", name);
+            } catch (IOException | RuntimeException e) {
+                log.error("Lost connection to worker {} before its run was complete", name, e);
+            } finally {
+                // A worker that fails must not keep the others waiting
+                countWarmedUp();
+                done.countDown();
+            }
+        }
+
+        private void countWarmedUp() {
+            if (!countedWarmedUp) {
+                countedWarmedUp = true;
+                warmedUp.countDown();
+            }
+        }
+
+        private void recordInterval(String[] fields) {
+            var intervalMeasuring = ClusterProtocol.PHASE_MEASURE.equals(fields[1]);
+            var intervalBytes = Long.parseLong(fields[2]);
+            var histogram = Histograms.decode(fields[3]);
+            if (intervalMeasuring) {
+                operations.add(histogram.getTotalCount());
+                bytes.add(intervalBytes);
+                intervalRecorder.record(histogram, intervalBytes);
+            } else if (!measuring) {
+                intervalRecorder.record(histogram, intervalBytes);
+            }
+        }
+
+        synchronized void send(String message) {
+            try {
+                writer.write(message);
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                log.error("Failed to send {} to worker {}", message, name, e);
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.warn("Failed to close connection to worker {}", name, e);
+            }
+        }
+    }
+}
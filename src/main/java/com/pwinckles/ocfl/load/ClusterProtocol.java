@@ -0,0 +1,30 @@
+package com.pwinckles.ocfl.load;
+
+/**
+ * The line protocol workers and the coordinator speak over TCP. Every message is a line of space separated fields.
+ *
+ * <pre>
+ * worker      -&gt; coordinator: HELLO name
+ * coordinator -&gt; worker:      START                     every worker has connected, start the warmup
+ * worker      -&gt; coordinator: WARMED_UP                 the worker's warmup is complete
+ * coordinator -&gt; worker:      MEASURE                   every worker's warmup is complete, start measuring
+ * worker      -&gt; coordinator: INTERVAL phase bytes hist a reporting interval, with a base64 encoded histogram
+ * worker      -&gt; coordinator: DONE                      the worker's run is complete
+ * </pre>
+ *
+ * Histograms are encoded with {@link Histograms#encode}.
+ */
+final class ClusterProtocol {
+
+    static final String HELLO = "HELLO";
+    static final String START = "START";
+    static final String WARMED_UP = "WARMED_UP";
+    static final String MEASURE = "MEASURE";
+    static final String INTERVAL = "INTERVAL";
+    static final String DONE = "DONE";
+
+    static final String PHASE_WARMUP = "warmup";
+    static final String PHASE_MEASURE = "measure";
+
+    private ClusterProtocol() {}
+}
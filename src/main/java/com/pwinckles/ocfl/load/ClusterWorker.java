@@ -0,0 +1,116 @@
+package com.pwinckles.ocfl.load;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The worker side of a distributed load test.
+ *
+ * @see ClusterProtocol
+ */
+public class ClusterWorker implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterWorker.class);
+
+    private final String name;
+    private final Socket socket;
+    private final BufferedReader reader;
+    private final BufferedWriter writer;
+
+    public ClusterWorker(String coordinator, String name) {
+        Objects.requireNonNull(coordinator, "coordinator cannot be null");
+        this.name = Objects.requireNonNull(name, "name cannot be null");
+
+        var separator = coordinator.lastIndexOf(':');
+        if (separator < 1) {
+            throw new IllegalArgumentException("Coordinator must be specified as host:port. Found: " + coordinator);
+        }
+        var host = coordinator.substring(0, separator);
+        var port = Integer.parseInt(coordinator.substring(separator + 1));
+
+        try {
+            this.socket = new Socket(host, port);
+            this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+
+        send(ClusterProtocol.HELLO + " " + name);
+        log.info("Connected to coordinator {} as {}", coordinator, name);
+    }
+
+    public void awaitStart() {
+        log.info("Waiting for the coordinator to start the run");
+        await(ClusterProtocol.START);
+    }
+
+    public void awaitMeasure() {
+        send(ClusterProtocol.WARMED_UP);
+        log.info("Waiting for the other workers to finish their warmups");
+        await(ClusterProtocol.MEASURE);
+    }
+
+    /**
+     * May be called from any thread.
+     */
+    public void sendInterval(boolean measuring, Histogram histogram, long bytes) {
+        send(String.join(
+                " ",
+                ClusterProtocol.INTERVAL,
+                measuring ? ClusterProtocol.PHASE_MEASURE : ClusterProtocol.PHASE_WARMUP,
+                String.valueOf(bytes),
+                Histograms.encode(histogram)));
+    }
+
+    /**
+     * Every interval must have been sent first.
+     */
+    public void done() {
+        send(ClusterProtocol.DONE);
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.warn("Failed to close connection to coordinator", e);
+        }
+    }
+
+    private synchronized void send(String message) {
+        try {
+            writer.write(message);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+
+    private void await(String expected) {
+        try {
+            var message = reader.readLine();
+            if (message == null) {
+                throw new IllegalStateException("Coordinator closed the connection while " + name + " was waiting");
+            }
+            if (!expected.equals(message)) {
+                throw new IllegalStateException(
+                        "Expected " + expected + " from the coordinator, but received: " + message);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.pwinckles.ocfl.load;
+
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+@CommandLine.Command(
+        name = "coordinator",
+        description =
+                """
+                Coordinates a load test that's distributed across several worker processes, which may be on \
+                different machines. Workers are new-obj-test runs that are started with --coordinator pointing at \
+                this process.
+
+                The coordinator waits for every worker to connect before starting them, and starts measuring once \
+                every worker's warmup is complete. Workers stream their reporting intervals to the coordinator, \
+                which merges them into cluster-wide throughput and percentiles.""",
+        mixinStandardHelpOptions = true)
+public class CoordinatorCmd implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(CoordinatorCmd.class);
+
+    @CommandLine.Option(
+            names = "--port",
+            description = "The port to listen for workers on.",
+            defaultValue = "7171",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int port;
+
+    @CommandLine.Option(
+            names = "--workers",
+            description = "The number of workers to wait for before starting the test.",
+            required = true)
+    private int workerCount;
+
+    @CommandLine.Option(
+            names = "--connect-timeout",
+            description = "How long to wait for every worker to connect, as an ISO-8601 duration.",
+            defaultValue = "PT10M",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private Duration connectTimeout;
+
+    @CommandLine.Mixin
+    private ReportOptions reportOptions;
+
+    @Override
+    public void run() {
+        log.info("Running coordinator with config: {}", this);
+
+        if (reportOptions.jfr()) {
+            throw new IllegalArgumentException("JFR recordings are made by the workers, not the coordinator.");
+        }
+
+        var coordinator =
+                new ClusterCoordinator(port, workerCount, connectTimeout, reportOptions.newIntervalRecorder("cluster"));
+
+        try {
+            var results = coordinator.run();
+            var totals = results.totals();
+
+            var workerSummary = new StringBuilder();
+            for (var worker : results.workers()) {
+                workerSummary
+                        .append(String.format("%-24s", worker.name()))
+                        .append(String.format(
+                                "ops=%d MB/s=%.2f",
+                                worker.operations(), Histograms.mbPerSecond(worker.bytes(), totals.duration())))
+                        .append(worker.completed() ? "" : " (disconnected)")
+                        .append("\n");
+            }
+            log.info("Workers:\n{}", workerSummary);
+
+            log.info(
+                    "Cluster throughput: {} ops/s {} MB/s across {} workers. Output in milliseconds:\n{}",
+                    String.format(
+                            "%.3f",
+                            totals.histogram().getTotalCount()
+                                    / (totals.duration().toNanos() / 1e9)),
+                    String.format("%.2f", Histograms.mbPerSecond(totals.bytes(), totals.duration())),
+                    results.workers().size(),
+                    Histograms.toMillis(totals.histogram()));
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Coordinator was interrupted.", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CoordinatorCmd{" + "port=" + port + ", workerCount=" + workerCount + ", connectTimeout="
+                + connectTimeout + ", reportOptions=" + reportOptions + '}';
+    }
+}
@@ -0,0 +1,149 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.core.OcflRepositoryBuilder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Describes the environment a load test ran in. Values that can't be read are left out.
+ */
+public final class EnvironmentInfo {
+
+    private EnvironmentInfo() {}
+
+    public static Map<String, Object> collect(Collection<Path> paths) {
+        var info = new LinkedHashMap<String, Object>();
+        info.put("jvm", jvm());
+        info.put("ocflJavaVersion", ocflJavaVersion());
+        info.put("os", os());
+        info.put("cpu", cpu());
+
+        var disks = new ArrayList<Map<String, Object>>();
+        paths.forEach(path -> disks.add(disk(path)));
+        info.put("disks", disks);
+
+        return info;
+    }
+
+    private static Map<String, Object> jvm() {
+        var runtime = ManagementFactory.getRuntimeMXBean();
+        var jvm = new LinkedHashMap<String, Object>();
+        jvm.put("version", System.getProperty("java.version"));
+        jvm.put("vendor", System.getProperty("java.vendor"));
+        jvm.put("vmName", runtime.getVmName());
+        jvm.put("vmVersion", runtime.getVmVersion());
+        jvm.put("inputArguments", runtime.getInputArguments());
+        jvm.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+        jvm.put(
+                "garbageCollectors",
+                ManagementFactory.getGarbageCollectorMXBeans().stream()
+                        .map(GarbageCollectorMXBean::getName)
+                        .toList());
+        return jvm;
+    }
+
+    /**
+     * The executable jar doesn't keep its dependencies' manifests, so the version is read from the Maven properties.
+     */
+    private static String ocflJavaVersion() {
+        try (InputStream in = OcflRepositoryBuilder.class.getResourceAsStream(
+                "/META-INF/maven/io.ocfl/ocfl-java-core/pom.properties")) {
+            if (in != null) {
+                var properties = new Properties();
+                properties.load(in);
+                return properties.getProperty("version");
+            }
+        } catch (IOException e) {
+            // Fall back to the package version
+        }
+        return OcflRepositoryBuilder.class.getPackage().getImplementationVersion();
+    }
+
+    private static Map<String, Object> os() {
+        var os = new LinkedHashMap<String, Object>();
+        os.put("name", System.getProperty("os.name"));
+        os.put("version", System.getProperty("os.version"));
+        os.put("arch", System.getProperty("os.arch"));
+        return os;
+    }
+
+    private static Map<String, Object> cpu() {
+        var cpu = new LinkedHashMap<String, Object>();
+        cpu.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        try (var lines = Files.lines(Path.of("/proc/cpuinfo"))) {
+            lines.filter(line -> line.startsWith("model name"))
+                    .findFirst()
+                    .ifPresent(line -> cpu.put(
+                            "model", line.substring(line.indexOf(':') + 1).trim()));
+        } catch (IOException | RuntimeException e) {
+            // Not Linux
+        }
+        return cpu;
+    }
+
+    private static Map<String, Object> disk(Path path) {
+        var disk = new LinkedHashMap<String, Object>();
+        disk.put("path", path.toString());
+        try {
+            var existing = path.toAbsolutePath();
+            while (existing != null && Files.notExists(existing)) {
+                existing = existing.getParent();
+            }
+            if (existing == null) {
+                return disk;
+            }
+
+            var store = Files.getFileStore(existing);
+            disk.put("fileStore", store.name());
+            disk.put("type", store.type());
+            disk.put("totalBytes", store.getTotalSpace());
+            disk.put("usableBytes", store.getUsableSpace());
+            blockDevice(store.name(), disk);
+        } catch (IOException | RuntimeException e) {
+            // The filesystem can't be described
+        }
+        return disk;
+    }
+
+    /**
+     * When the filesystem is on a partition, the device is the partition's parent.
+     */
+    private static void blockDevice(String fileStoreName, Map<String, Object> disk) throws IOException {
+        if (!fileStoreName.startsWith("/dev/")) {
+            return;
+        }
+        var block = Path.of("/sys/class/block").resolve(Path.of(fileStoreName).getFileName());
+        if (Files.notExists(block)) {
+            return;
+        }
+        var device = block.toRealPath();
+        if (Files.exists(device.resolve("partition"))) {
+            device = device.getParent();
+        }
+
+        disk.put("device", device.getFileName().toString());
+        readSysfs(device.resolve("device/model")).ifPresent(model -> disk.put("model", model));
+        readSysfs(device.resolve("queue/rotational"))
+                .ifPresent(rotational -> disk.put("rotational", "1".equals(rotational)));
+        readSysfs(device.resolve("queue/scheduler")).ifPresent(scheduler -> disk.put("scheduler", scheduler));
+    }
+
+    private static Optional<String> readSysfs(Path file) {
+        try {
+            return Optional.of(Files.readString(file, StandardCharsets.US_ASCII).trim());
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+}
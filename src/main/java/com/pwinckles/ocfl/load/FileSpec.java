@@ -1,12 +1,23 @@
 package com.pwinckles.ocfl.load;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
+/**
+ * Describes the shape of a test object. Sizes are either fixed, eg {@code 10MB}, or drawn from a distribution, eg
+ * {@code lognormal:256KB:1.5} or {@code uniform:1KB:1MB}.
+ */
 public final class FileSpec {
 
-    private static final Pattern SIZE_PATTERN = Pattern.compile("(\\d+)(\\p{Alpha}+)");
+    private static final Pattern SIZE_PATTERN = Pattern.compile("(\\d+(?:\\.\\d+)?)(\\p{Alpha}+)");
+    private static final String PADDING_CHARS = "abcdefghijklmnopqrstuvwxyz0123456789";
 
     private enum Unit {
         B,
@@ -24,26 +35,189 @@ public final class FileSpec {
         }
     }
 
-    private FileSpec() {}
+    private interface SizeDistribution {
+        long sample(SplittableRandom random);
+    }
 
-    public static Map<Long, Integer> convert(Map<String, Integer> files) {
-        return files.entrySet().stream()
-                .map(entry -> {
-                    var sizeStr = entry.getKey();
+    private record Entry(String spec, SizeDistribution sizes, int count) {}
 
-                    var matcher = SIZE_PATTERN.matcher(sizeStr);
-                    if (!matcher.matches()) {
-                        throw new IllegalArgumentException("Invalid file size: " + sizeStr);
-                    }
+    public record ObjectFile(long size, String contentId) {}
+
+    private final List<Entry> entries;
+    private final int dirDepth;
+    private final int dirFanOut;
+    private final int pathLength;
+    private final double duplicateFraction;
+
+    private FileSpec(List<Entry> entries, int dirDepth, int dirFanOut, int pathLength, double duplicateFraction) {
+        this.entries = entries;
+        this.dirDepth = dirDepth;
+        this.dirFanOut = dirFanOut;
+        this.pathLength = pathLength;
+        this.duplicateFraction = duplicateFraction;
+    }
+
+    public static FileSpec parse(
+            Map<String, Integer> files, int dirDepth, int dirFanOut, int pathLength, double duplicateFraction) {
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("File spec must contain 1 or more files.");
+        }
+        if (dirDepth < 0) {
+            throw new IllegalArgumentException("Directory depth must be 0 or more.");
+        }
+        if (dirFanOut < 1) {
+            throw new IllegalArgumentException("Directory fan-out must be 1 or more.");
+        }
+        if (pathLength < 0) {
+            throw new IllegalArgumentException("Path length must be 0 or more.");
+        }
+        if (duplicateFraction < 0 || duplicateFraction >= 1) {
+            throw new IllegalArgumentException("Duplicate fraction must be 0 or more and less than 1.");
+        }
+
+        var entries = new ArrayList<Entry>(files.size());
+        for (var entry : files.entrySet()) {
+            if (entry.getValue() == null || entry.getValue() < 0) {
+                throw new IllegalArgumentException("Invalid file count: " + entry.getKey() + "=" + entry.getValue());
+            }
+            entries.add(new Entry(entry.getKey(), parseDistribution(entry.getKey()), entry.getValue()));
+        }
+        if (entries.stream().mapToInt(Entry::count).sum() < 1) {
+            throw new IllegalArgumentException("File spec must contain 1 or more files.");
+        }
+
+        return new FileSpec(List.copyOf(entries), dirDepth, dirFanOut, pathLength, duplicateFraction);
+    }
+
+    /**
+     * The same seed always produces the same files.
+     */
+    public Map<String, ObjectFile> sample(long seed) {
+        var random = new SplittableRandom(seed);
+        var files = new LinkedHashMap<String, ObjectFile>();
+        int i = 1;
+
+        for (var entry : entries) {
+            // Duplicates are only drawn from the same entry, so that every entry keeps its size distribution
+            var originals = new ArrayList<ObjectFile>();
+            for (int j = 0; j < entry.count(); j++) {
+                var logicalPath = logicalPath(i++, random);
+                if (!originals.isEmpty() && random.nextDouble() < duplicateFraction) {
+                    files.put(logicalPath, originals.get(random.nextInt(originals.size())));
+                } else {
+                    var file = new ObjectFile(entry.sizes().sample(random), logicalPath);
+                    originals.add(file);
+                    files.put(logicalPath, file);
+                }
+            }
+        }
+
+        return files;
+    }
 
-                    try {
-                        var size = Integer.parseInt(matcher.group(1));
-                        var unit = Unit.valueOf(matcher.group(2).toUpperCase());
-                        return Map.entry(unit.toBytes(size), entry.getValue());
-                    } catch (RuntimeException e) {
-                        throw new IllegalArgumentException("Invalid file size: " + sizeStr, e);
+    public static String summary(Map<String, ObjectFile> objectFiles) {
+        var sizes = objectFiles.values().stream()
+                .mapToLong(ObjectFile::size)
+                .sorted()
+                .toArray();
+        return String.format(
+                "files=%d bytes=%d uniqueBytes=%d minSize=%d medianSize=%d maxSize=%d maxPathLength=%d",
+                sizes.length,
+                Arrays.stream(sizes).sum(),
+                uniqueBytes(objectFiles),
+                sizes[0],
+                sizes[sizes.length / 2],
+                sizes[sizes.length - 1],
+                objectFiles.keySet().stream().mapToInt(String::length).max().orElse(0));
+    }
+
+    public static long uniqueBytes(Map<String, ObjectFile> objectFiles) {
+        return objectFiles.entrySet().stream()
+                .filter(entry -> entry.getKey().equals(entry.getValue().contentId()))
+                .mapToLong(entry -> entry.getValue().size())
+                .sum();
+    }
+
+    private String logicalPath(int fileNum, SplittableRandom random) {
+        var path = new StringBuilder();
+        for (var level = 0; level < dirDepth; level++) {
+            path.append("dir-").append(random.nextInt(dirFanOut)).append('/');
+        }
+        path.append("file-").append(fileNum);
+
+        var padding = pathLength - path.length() - ".bin".length();
+        if (padding > 0) {
+            path.append('-');
+            for (var k = 1; k < padding; k++) {
+                path.append(PADDING_CHARS.charAt(random.nextInt(PADDING_CHARS.length())));
+            }
+        }
+
+        return path.append(".bin").toString();
+    }
+
+    private static SizeDistribution parseDistribution(String spec) {
+        var parts = spec.split(":");
+        try {
+            switch (parts[0].toLowerCase()) {
+                case "lognormal" -> {
+                    if (parts.length != 3) {
+                        throw new IllegalArgumentException("Expected lognormal:MEDIAN:SIGMA");
+                    }
+                    var median = parseSize(parts[1]);
+                    var sigma = Double.parseDouble(parts[2]);
+                    if (sigma < 0) {
+                        throw new IllegalArgumentException("Sigma must be 0 or more");
                     }
-                })
-                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+                    var mu = Math.log(Math.max(1, median));
+                    return random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+                }
+                case "uniform" -> {
+                    if (parts.length != 3) {
+                        throw new IllegalArgumentException("Expected uniform:MIN:MAX");
+                    }
+                    var min = parseSize(parts[1]);
+                    var max = parseSize(parts[2]);
+                    if (min > max) {
+                        throw new IllegalArgumentException("Min must be less than or equal to max");
+                    }
+                    return random -> random.nextLong(min, max + 1);
+                }
+                default -> {
+                    if (parts.length != 1) {
+                        throw new IllegalArgumentException("Unknown size distribution");
+                    }
+                    var size = parseSize(spec);
+                    return random -> size;
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid file size: " + spec, e);
+        }
+    }
+
+    static long parseSize(String sizeStr) {
+        var matcher = SIZE_PATTERN.matcher(sizeStr);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid size: " + sizeStr);
+        }
+
+        var unit = Unit.valueOf(matcher.group(2).toUpperCase());
+        return new BigDecimal(matcher.group(1))
+                .multiply(BigDecimal.valueOf(unit.toBytes(1)))
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+
+    @Override
+    public String toString() {
+        return "FileSpec{" + "entries="
+                + entries.stream()
+                        .map(entry -> entry.spec() + "=" + entry.count())
+                        .toList() + ", dirDepth="
+                + dirDepth + ", dirFanOut="
+                + dirFanOut + ", pathLength="
+                + pathLength + ", duplicateFraction="
+                + duplicateFraction + '}';
     }
 }
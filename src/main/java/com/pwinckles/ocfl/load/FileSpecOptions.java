@@ -0,0 +1,92 @@
+package com.pwinckles.ocfl.load;
+
+import java.util.Map;
+import picocli.CommandLine;
+
+/**
+ * Options that describe the shape and content of test objects.
+ */
+public class FileSpecOptions {
+
+    @CommandLine.Option(
+            names = "--files",
+            description = "A list of file size and file count pairs that describe the test object composition."
+                    + " For example, '10MB=2' means 2 10MB files. Valid units are B, KB, MB, and GB."
+                    + " Sizes may also be drawn from a distribution: 'lognormal:MEDIAN:SIGMA=COUNT' or"
+                    + " 'uniform:MIN:MAX=COUNT', eg 'lognormal:256KB:1.5=1000'.",
+            required = true)
+    private Map<String, Integer> files;
+
+    @CommandLine.Option(
+            names = "--dir-depth",
+            description = "The number of directories that each file is nested in.",
+            defaultValue = "0",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int dirDepth;
+
+    @CommandLine.Option(
+            names = "--dir-fan-out",
+            description = "The number of directories at each level of nesting.",
+            defaultValue = "10",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int dirFanOut;
+
+    @CommandLine.Option(
+            names = "--path-length",
+            description = "The minimum length of each file's logical path. File names are padded to reach it.",
+            defaultValue = "0",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int pathLength;
+
+    @CommandLine.Option(
+            names = "--duplicate-fraction",
+            description = "The fraction of files in each test object that have the same content as an earlier file"
+                    + " from the same --files entry. OCFL stores duplicate content only once.",
+            defaultValue = "0",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private double duplicateFraction;
+
+    @CommandLine.Option(
+            names = "--compressibility",
+            description = "The fraction of generated content that's compressible. Every 4KB block of content ends"
+                    + " with this fraction of zero bytes, and the rest is random.",
+            defaultValue = "0",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private double compressibility;
+
+    @CommandLine.Option(
+            names = "--seed",
+            description = "The seed for file sizes, paths, and generated content. The same seed always produces the"
+                    + " same test objects, and the same streamed content for the same object id and file.",
+            defaultValue = "1",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private long seed;
+
+    public FileSpec fileSpec() {
+        return FileSpec.parse(files, dirDepth, dirFanOut, pathLength, duplicateFraction);
+    }
+
+    public Map<String, FileSpec.ObjectFile> sampleObjectFiles() {
+        return fileSpec().sample(seed);
+    }
+
+    public double compressibility() {
+        return compressibility;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    @Override
+    public String toString() {
+        return "FileSpecOptions{" + "files="
+                + files + ", dirDepth="
+                + dirDepth + ", dirFanOut="
+                + dirFanOut + ", pathLength="
+                + pathLength + ", duplicateFraction="
+                + duplicateFraction + ", compressibility="
+                + compressibility + ", seed="
+                + seed + '}';
+    }
+}
@@ -0,0 +1,71 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.core.util.FileUtil;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Test objects that are generated on disk once and reused. Fixtures are never modified by the tests that use them.
+ */
+public class FixturePool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(FixturePool.class);
+
+    private record Generator(Path root, long seed, double compressibility) {}
+
+    private record Shape(Generator generator, Map<String, FileSpec.ObjectFile> objectFiles) {}
+
+    private final Map<Generator, ObjectGenerator> generators = new HashMap<>();
+    private final Map<Shape, Deque<Path>> idle = new HashMap<>();
+    private final Map<Path, Shape> leased = new HashMap<>();
+    private final List<Path> fixtures = new ArrayList<>();
+
+    public Path acquire(Path root, long seed, double compressibility, Map<String, FileSpec.ObjectFile> objectFiles) {
+        var generator = new Generator(root, seed, compressibility);
+        var shape = new Shape(generator, Map.copyOf(objectFiles));
+        ObjectGenerator objectGenerator;
+
+        synchronized (this) {
+            var fixture = idle.getOrDefault(shape, new ArrayDeque<>()).poll();
+            if (fixture != null) {
+                log.info("Reusing test object {}", fixture);
+                leased.put(fixture, shape);
+                return fixture;
+            }
+            objectGenerator = generators.computeIfAbsent(
+                    generator, k -> new ObjectGenerator(k.root(), k.seed(), k.compressibility()));
+        }
+
+        log.info("Generating test object");
+        var fixture = objectGenerator.generate(objectFiles);
+
+        synchronized (this) {
+            fixtures.add(fixture);
+            leased.put(fixture, shape);
+        }
+        return fixture;
+    }
+
+    public synchronized void release(Path fixture) {
+        var shape = leased.remove(fixture);
+        if (shape == null) {
+            throw new IllegalArgumentException("Fixture was not leased from this pool: " + fixture);
+        }
+        idle.computeIfAbsent(shape, k -> new ArrayDeque<>()).push(fixture);
+    }
+
+    @Override
+    public synchronized void close() {
+        fixtures.forEach(FileUtil::safeDeleteDirectory);
+        fixtures.clear();
+        idle.clear();
+        leased.clear();
+    }
+}
@@ -0,0 +1,133 @@
+package com.pwinckles.ocfl.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import org.HdrHistogram.Histogram;
+
+/**
+ * The progress of a repository growth test, so that a run that's interrupted can be resumed where it left off.
+ */
+public record GrowthCheckpoint(
+        String idPrefix,
+        long nextSequence,
+        List<Long> inFlight,
+        int threads,
+        long objectCount,
+        long bytes,
+        Duration writeTime,
+        long bucketSize,
+        String repoSettings,
+        String fileSpec,
+        SortedMap<Long, Histogram> buckets) {
+
+    public GrowthCheckpoint {
+        Objects.requireNonNull(idPrefix, "idPrefix cannot be null");
+        Objects.requireNonNull(inFlight, "inFlight cannot be null");
+        Objects.requireNonNull(writeTime, "writeTime cannot be null");
+        Objects.requireNonNull(repoSettings, "repoSettings cannot be null");
+        Objects.requireNonNull(fileSpec, "fileSpec cannot be null");
+        Objects.requireNonNull(buckets, "buckets cannot be null");
+        if (bucketSize < 1) {
+            throw new IllegalArgumentException("Bucket size must be 1 or more.");
+        }
+        inFlight = List.copyOf(inFlight);
+        buckets = Collections.unmodifiableSortedMap(new TreeMap<>(buckets));
+    }
+
+    public static GrowthCheckpoint initial(long bucketSize, String repoSettings, String fileSpec) {
+        return new GrowthCheckpoint(
+                "growth-" + UUID.randomUUID() + "-",
+                0,
+                List.of(),
+                0,
+                0,
+                0,
+                Duration.ZERO,
+                bucketSize,
+                repoSettings,
+                fileSpec,
+                new TreeMap<>());
+    }
+
+    public static GrowthCheckpoint read(Path file) {
+        try {
+            return fromJson(new ObjectMapper().readTree(file.toFile()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file and then moves it over the checkpoint file, so that the checkpoint
+     * file is never left partially written.
+     */
+    public void write(Path file) {
+        var temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            }
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(temp.toFile(), toJson());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+
+    private Map<String, Object> toJson() {
+        var json = new LinkedHashMap<String, Object>();
+        json.put("idPrefix", idPrefix);
+        json.put("nextSequence", nextSequence);
+        json.put("inFlight", inFlight);
+        json.put("threads", threads);
+        json.put("objectCount", objectCount);
+        json.put("bytes", bytes);
+        json.put("writeTime", writeTime.toString());
+        json.put("bucketSize", bucketSize);
+        json.put("repoSettings", repoSettings);
+        json.put("fileSpec", fileSpec);
+        var encodedBuckets = new LinkedHashMap<String, String>();
+        buckets.forEach((index, histogram) -> encodedBuckets.put(String.valueOf(index), Histograms.encode(histogram)));
+        json.put("buckets", encodedBuckets);
+        return json;
+    }
+
+    private static GrowthCheckpoint fromJson(JsonNode json) {
+        var inFlight = new ArrayList<Long>();
+        json.path("inFlight").forEach(sequence -> inFlight.add(sequence.asLong()));
+        var buckets = new TreeMap<Long, Histogram>();
+        json.path("buckets")
+                .fields()
+                .forEachRemaining(entry -> buckets.put(
+                        Long.parseLong(entry.getKey()),
+                        Histograms.decode(entry.getValue().asText())));
+        return new GrowthCheckpoint(
+                json.path("idPrefix").asText(),
+                json.path("nextSequence").asLong(),
+                inFlight,
+                json.path("threads").asInt(),
+                json.path("objectCount").asLong(),
+                json.path("bytes").asLong(),
+                Duration.parse(json.path("writeTime").asText()),
+                json.path("bucketSize").asLong(),
+                json.path("repoSettings").asText(),
+                json.path("fileSpec").asText(),
+                buckets);
+    }
+}
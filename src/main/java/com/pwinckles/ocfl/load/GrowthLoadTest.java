@@ -0,0 +1,376 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.api.OcflRepository;
+import io.ocfl.api.model.ObjectVersionId;
+import io.ocfl.api.model.VersionInfo;
+import io.ocfl.core.util.FileUtil;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Grows the repository to a target number of objects without purging them, and buckets write latency by the number
+ * of objects the repository contained when each write started. Progress is checkpointed so that runs can be resumed.
+ */
+public class GrowthLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(GrowthLoadTest.class);
+
+    // A thread that fails this many writes in a row gives up, so that a broken repository doesn't spin forever
+    private static final int MAX_CONSECUTIVE_FAILURES = 10;
+
+    public record Results(
+            GrowthCheckpoint checkpoint,
+            IntervalRecorder.Totals totals,
+            long recovered,
+            long failures,
+            ResourceSampler.Totals resources) {}
+
+    private final OcflRepository repo;
+    private final long targetObjectCount;
+    private final int threadCount;
+    private final Path checkpointFile;
+    private final Duration checkpointInterval;
+    private final Map<String, FileSpec.ObjectFile> objectFiles;
+    private final long objectSize;
+    private final IntervalRecorder intervalRecorder;
+    private final ResourceSampler resourceSampler;
+
+    private final ObjectGenerator objectGenerator;
+    private final LongAdder failures = new LongAdder();
+    // Every checkpoint is written through the same temp file, so only one can be written at a time
+    private final Object checkpointLock = new Object();
+    // Both the run and the shutdown hook stop the recorders, but they can only be stopped once
+    private final Object recorderLock = new Object();
+    private boolean recordersStopped;
+    private IntervalRecorder.Totals totals;
+    private ResourceSampler.Totals resources;
+
+    // Everything below is guarded by this, so that a checkpoint sees a consistent snapshot
+    private final GrowthCheckpoint initialCheckpoint;
+    private final TreeMap<Long, Histogram> buckets = new TreeMap<>();
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private final TreeSet<Long> released = new TreeSet<>();
+    private long nextSequence;
+    private long objectCount;
+    private long claimedCount;
+    private long bytes;
+    private long runStartNanos;
+
+    public GrowthLoadTest(
+            OcflRepository repo,
+            Path tempDir,
+            long targetObjectCount,
+            int threadCount,
+            Path checkpointFile,
+            Duration checkpointInterval,
+            GrowthCheckpoint checkpoint,
+            Map<String, FileSpec.ObjectFile> objectFiles,
+            long seed,
+            double compressibility,
+            IntervalRecorder intervalRecorder,
+            ResourceSampler resourceSampler) {
+        if (targetObjectCount < 1) {
+            throw new IllegalArgumentException("Object count must be 1 or more.");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be 1 or more.");
+        }
+        if (checkpointInterval.isNegative() || checkpointInterval.isZero()) {
+            throw new IllegalArgumentException("Checkpoint interval must be greater than 0.");
+        }
+        if (objectFiles == null || objectFiles.isEmpty()) {
+            throw new IllegalArgumentException("File spec must contain 1 or more files.");
+        }
+
+        this.repo = Objects.requireNonNull(repo);
+        this.targetObjectCount = targetObjectCount;
+        this.threadCount = threadCount;
+        this.checkpointFile = Objects.requireNonNull(checkpointFile);
+        this.checkpointInterval = checkpointInterval;
+        this.objectFiles = objectFiles;
+        this.objectSize = objectFiles.values().stream()
+                .mapToLong(FileSpec.ObjectFile::size)
+                .sum();
+        this.intervalRecorder = Objects.requireNonNull(intervalRecorder);
+        this.resourceSampler = Objects.requireNonNull(resourceSampler);
+
+        this.objectGenerator = new ObjectGenerator(Objects.requireNonNull(tempDir), seed, compressibility);
+
+        this.initialCheckpoint = Objects.requireNonNull(checkpoint);
+        checkpoint.buckets().forEach((index, histogram) -> buckets.put(index, histogram.copy()));
+        this.nextSequence = checkpoint.nextSequence();
+        this.objectCount = checkpoint.objectCount();
+        this.claimedCount = checkpoint.objectCount();
+        this.bytes = checkpoint.bytes();
+    }
+
+    public Results run() throws InterruptedException {
+        log.info("Starting growth load test");
+
+        var recovered = recover();
+        if (objectCount >= targetObjectCount) {
+            log.info("Repository already contains {} test objects", objectCount);
+        }
+
+        var objectPath = objectGenerator.generate(objectFiles);
+        var versionInfo =
+                new VersionInfo().setUser("Peter", "pwinckles@example.com").setMessage("Growing");
+
+        var checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "growth-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var shutdownHook = new Thread(() -> {
+            log.info("Shutting down. Writing checkpoint to {}", checkpointFile);
+            checkpointer.shutdownNow();
+            try {
+                checkpoint();
+            } finally {
+                stopRecorders();
+            }
+        });
+
+        synchronized (this) {
+            runStartNanos = System.nanoTime();
+        }
+        intervalRecorder.start();
+        resourceSampler.start();
+
+        GrowthCheckpoint checkpoint;
+        try {
+            var threads = new ArrayList<Thread>(threadCount);
+            for (var i = 0; i < threadCount; i++) {
+                threads.add(createThread(objectPath, versionInfo));
+            }
+
+            // Growth never returns to a steady state, so there's no warmup to discard
+            intervalRecorder.startMeasuring();
+            resourceSampler.startMeasuring();
+
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+            checkpointer.scheduleAtFixedRate(
+                    this::checkpointSafely,
+                    checkpointInterval.toMillis(),
+                    checkpointInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+
+            threads.forEach(Thread::start);
+            for (var thread : threads) {
+                thread.join();
+            }
+
+            checkpointer.shutdownNow();
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+            checkpoint = checkpoint();
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } finally {
+            checkpointer.shutdownNow();
+            try {
+                stopRecorders();
+            } finally {
+                FileUtil.safeDeleteDirectory(objectPath);
+            }
+        }
+
+        log.info("Growth load test complete");
+        synchronized (recorderLock) {
+            return new Results(checkpoint, totals, recovered, failures.sum(), resources);
+        }
+    }
+
+    private void stopRecorders() {
+        synchronized (recorderLock) {
+            if (recordersStopped) {
+                return;
+            }
+            recordersStopped = true;
+            try {
+                totals = intervalRecorder.stop();
+            } finally {
+                resources = resourceSampler.stop();
+            }
+        }
+    }
+
+    /**
+     * Every thread writes one object at a time, so once as many consecutive sequence numbers as there are threads are
+     * missing, there can't be any more objects.
+     */
+    private synchronized long recover() {
+        long recovered = 0;
+
+        for (var sequence : initialCheckpoint.inFlight()) {
+            if (repo.containsObject(objectId(sequence))) {
+                recovered++;
+            }
+        }
+
+        // Only the run that wrote the checkpoint can have written objects after it
+        var probeWindow = Math.max(1, initialCheckpoint.threads());
+        var misses = 0;
+        var sequence = nextSequence;
+        while (misses < probeWindow) {
+            if (repo.containsObject(objectId(sequence))) {
+                recovered++;
+                misses = 0;
+            } else {
+                misses++;
+            }
+            sequence++;
+        }
+
+        if (recovered > 0) {
+            nextSequence = sequence;
+            objectCount += recovered;
+            claimedCount = objectCount;
+            bytes += recovered * objectSize;
+        }
+        if (objectCount > 0) {
+            log.info(
+                    "Resuming with {} objects, {} of which were written after the last checkpoint",
+                    objectCount,
+                    recovered);
+        }
+
+        return recovered;
+    }
+
+    private Thread createThread(Path objectPath, VersionInfo versionInfo) {
+        return new Thread() {
+            private final String id = UUID.randomUUID().toString();
+
+            @Override
+            public void run() {
+                setName(id);
+                log.info("Starting thread {}", id);
+
+                try {
+                    var consecutiveFailures = 0;
+                    long[] claim;
+                    while ((claim = claim()) != null) {
+                        if (Thread.interrupted()) {
+                            release(claim[0]);
+                            throw new InterruptedException();
+                        }
+
+                        var sequence = claim[0];
+                        var bucket = claim[1];
+                        var start = System.nanoTime();
+                        try {
+                            repo.putObject(ObjectVersionId.head(objectId(sequence)), objectPath, versionInfo);
+                        } catch (RuntimeException e) {
+                            release(sequence);
+                            failures.increment();
+                            if (++consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+                                throw e;
+                            }
+                            log.error("Failed to write object {}. It will be written again.", objectId(sequence), e);
+                            continue;
+                        }
+                        var latency = System.nanoTime() - start;
+                        consecutiveFailures = 0;
+
+                        intervalRecorder.record(latency, objectSize);
+                        complete(sequence, bucket, latency);
+                    }
+
+                    log.info("Completed test in thread {}", id);
+                } catch (InterruptedException e) {
+                    log.info("Thread interrupted");
+                } catch (RuntimeException e) {
+                    log.error("{} writes failed in a row. Thread exiting.", MAX_CONSECUTIVE_FAILURES, e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Sequence numbers that were released are claimed again first, so that a failed write doesn't leave a gap that
+     * would end the probe for recovered objects early.
+     */
+    private synchronized long[] claim() {
+        if (claimedCount >= targetObjectCount) {
+            return null;
+        }
+        var sequence = released.isEmpty() ? nextSequence++ : released.pollFirst();
+        inFlight.add(sequence);
+        claimedCount++;
+        return new long[] {sequence, objectCount / initialCheckpoint.bucketSize()};
+    }
+
+    /**
+     * Gives back a claim whose object wasn't written, so that it's written again
+     */
+    private synchronized void release(long sequence) {
+        claimedCount--;
+        released.add(sequence);
+    }
+
+    private synchronized void complete(long sequence, long bucket, long latency) {
+        inFlight.remove(sequence);
+        objectCount++;
+        bytes += objectSize;
+        buckets.computeIfAbsent(bucket, k -> Histograms.newHistogram()).recordValue(latency);
+    }
+
+    private synchronized GrowthCheckpoint snapshot() {
+        var writeTime = initialCheckpoint.writeTime().plusNanos(System.nanoTime() - runStartNanos);
+        return new GrowthCheckpoint(
+                initialCheckpoint.idPrefix(),
+                nextSequence,
+                new ArrayList<>(inFlight),
+                threadCount,
+                objectCount,
+                bytes,
+                writeTime,
+                initialCheckpoint.bucketSize(),
+                initialCheckpoint.repoSettings(),
+                initialCheckpoint.fileSpec(),
+                copyBuckets());
+    }
+
+    private TreeMap<Long, Histogram> copyBuckets() {
+        var copy = new TreeMap<Long, Histogram>();
+        buckets.forEach((index, histogram) -> copy.put(index, histogram.copy()));
+        return copy;
+    }
+
+    private GrowthCheckpoint checkpoint() {
+        GrowthCheckpoint checkpoint;
+        synchronized (checkpointLock) {
+            checkpoint = snapshot();
+            checkpoint.write(checkpointFile);
+        }
+        log.info(
+                "Checkpoint: {} objects, {} in flight, next sequence {}",
+                checkpoint.objectCount(),
+                checkpoint.inFlight().size(),
+                checkpoint.nextSequence());
+        return checkpoint;
+    }
+
+    private void checkpointSafely() {
+        try {
+            checkpoint();
+        } catch (RuntimeException e) {
+            log.error("Failed to write checkpoint to {}", checkpointFile, e);
+        }
+    }
+
+    private String objectId(long sequence) {
+        return initialCheckpoint.idPrefix() + sequence;
+    }
+}
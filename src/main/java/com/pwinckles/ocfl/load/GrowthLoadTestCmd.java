@@ -0,0 +1,256 @@
+package com.pwinckles.ocfl.load;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+@CommandLine.Command(
+        name = "growth-test",
+        description =
+                """
+                Grows the OCFL repository to a target number of test objects with characteristics that meet a \
+                supplied specification, keeping every object, and reports write latency bucketed by the number of \
+                objects the repository contained when each write started.
+
+                Progress is written to a checkpoint file. When the checkpoint file exists, the test resumes from \
+                it, against the same repository, until the repository contains the target number of test objects. \
+                The repository is never deleted.
+
+                When S3 options are specified, the OCFL repository is created in S3. When --s3-local is \
+                specified, it's created in an S3-compatible endpoint that's started in-process and stores \
+                objects on the local filesystem. Otherwise, it's created in a directory on the local filesystem.""",
+        mixinStandardHelpOptions = true)
+public class GrowthLoadTestCmd implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(GrowthLoadTestCmd.class);
+
+    private static final String BUCKETS_CSV = "growth-buckets.csv";
+
+    @CommandLine.Option(
+            names = "--objects",
+            description = "The total number of test objects the repository should contain when the test completes,"
+                    + " including objects written by previous runs.",
+            required = true)
+    private long targetObjectCount;
+
+    @CommandLine.Option(
+            names = "--threads",
+            description = "The number of threads to run the test on, which is the number of objects that are"
+                    + " written concurrently.",
+            required = true)
+    private int threadCount;
+
+    @CommandLine.Option(
+            names = "--checkpoint",
+            description = "The file to write progress to, and to resume from when it exists.",
+            required = true)
+    private Path checkpointFile;
+
+    @CommandLine.Option(
+            names = "--checkpoint-interval",
+            description = "How often to write progress to the checkpoint file, as an ISO-8601 duration.",
+            defaultValue = "PT1M",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private Duration checkpointInterval;
+
+    @CommandLine.Option(
+            names = "--bucket-size",
+            description = "The number of objects in each bucket that latency is reported for. Can't be changed"
+                    + " when resuming.",
+            defaultValue = "10000",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private long bucketSize;
+
+    @CommandLine.Option(
+            names = "--temp",
+            description = "The directory to use to write files before they're inserted into the repository.",
+            required = true)
+    private Path tempDir;
+
+    @CommandLine.ArgGroup(multiplicity = "1")
+    private StorageOptions storageOptions;
+
+    @CommandLine.Mixin
+    private FileSpecOptions fileSpecOptions;
+
+    @CommandLine.Mixin
+    private RepoOptions repoOptions;
+
+    @CommandLine.Mixin
+    private ReportOptions reportOptions;
+
+    @CommandLine.Mixin
+    private S3TuningOptions s3TuningOptions;
+
+    @Override
+    public void run() {
+        log.info("Running growth load test with config: {}", this);
+
+        try {
+            Files.createDirectories(tempDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+
+        if (s3TuningOptions.isSet() && !storageOptions.isS3()) {
+            throw new IllegalArgumentException("S3 client tuning options only apply to S3 storage.");
+        }
+        var tuning = s3TuningOptions.single();
+
+        var repoSettings = repoOptions.buildRepoSettings();
+        var objectFiles = fileSpecOptions.sampleObjectFiles();
+        var fileSpec = FileSpec.summary(objectFiles);
+        log.info("Test objects: {}", fileSpec);
+
+        var checkpoint = loadCheckpoint(repoSettings, fileSpec);
+
+        var inventoryCache = repoOptions.buildInventoryCache(storageOptions.isS3());
+        var repo = storageOptions.buildRepo(tempDir, tuning, new RepoConfig(repoSettings, inventoryCache));
+
+        var loadTest = new GrowthLoadTest(
+                repo,
+                tempDir,
+                targetObjectCount,
+                threadCount,
+                checkpointFile,
+                checkpointInterval,
+                checkpoint,
+                objectFiles,
+                fileSpecOptions.seed(),
+                fileSpecOptions.compressibility(),
+                reportOptions.newIntervalRecorder("growth"),
+                reportOptions.newResourceSampler("resources"));
+
+        try {
+            var results = loadTest.run();
+            var finalCheckpoint = results.checkpoint();
+
+            var totals = results.totals();
+            log.info(
+                    "Write throughput in this run: {} objects/s {} MB/s. Latency per object in milliseconds:\n{}",
+                    String.format(
+                            "%.3f",
+                            totals.histogram().getTotalCount()
+                                    / (totals.duration().toNanos() / 1e9)),
+                    String.format("%.2f", Histograms.mbPerSecond(totals.bytes(), totals.duration())),
+                    Histograms.toMillis(totals.histogram()));
+
+            log.info(
+                    "Repository contains {} test objects, {} MB, written in {}. Objects recovered on resume: {}."
+                            + " Failed writes: {}",
+                    finalCheckpoint.objectCount(),
+                    String.format("%.2f", finalCheckpoint.bytes() / (1024.0 * 1024.0)),
+                    finalCheckpoint.writeTime(),
+                    results.recovered(),
+                    results.failures());
+
+            log.info("Write latency by repository object count in milliseconds:\n{}", bucketTable(finalCheckpoint));
+            writeBucketsCsv(finalCheckpoint);
+
+            log.info("Resources during this run: {}", results.resources().summary());
+
+            if (storageOptions.isS3()) {
+                log.info("S3 client: {}", tuning.effective());
+            }
+
+            log.info("Repository: {}", repoSettings.effective());
+            log.info(
+                    "The repository was kept. Delete it manually, along with {}, when it's no longer needed.",
+                    checkpointFile);
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Load test was interrupted.", e);
+        } finally {
+            repo.close();
+            storageOptions.close();
+        }
+    }
+
+    private GrowthCheckpoint loadCheckpoint(RepoSettings repoSettings, String fileSpec) {
+        if (Files.notExists(checkpointFile)) {
+            log.info("Starting a new growth test. Progress will be written to {}", checkpointFile);
+            return GrowthCheckpoint.initial(bucketSize, repoSettings.effective(), fileSpec);
+        }
+
+        var checkpoint = GrowthCheckpoint.read(checkpointFile);
+        log.info(
+                "Resuming growth test from {} with {} objects written in {}",
+                checkpointFile,
+                checkpoint.objectCount(),
+                checkpoint.writeTime());
+
+        if (checkpoint.bucketSize() != bucketSize) {
+            throw new IllegalArgumentException("Bucket size must match the checkpoint's bucket size of "
+                    + checkpoint.bucketSize() + " when resuming.");
+        }
+        if (!checkpoint.repoSettings().equals(repoSettings.effective())) {
+            throw new IllegalArgumentException("Repository settings must match the checkpoint's settings, "
+                    + checkpoint.repoSettings() + ", when resuming.");
+        }
+        if (!checkpoint.fileSpec().equals(fileSpec)) {
+            log.warn(
+                    "The test objects don't match the checkpoint's. Latency in later buckets won't be comparable to"
+                            + " earlier buckets. Checkpoint: {}",
+                    checkpoint.fileSpec());
+        }
+
+        return checkpoint;
+    }
+
+    private String bucketTable(GrowthCheckpoint checkpoint) {
+        var table = new StringBuilder();
+        checkpoint.buckets().forEach((index, histogram) -> table.append(String.format(
+                        "%12d - %-12d ", index * checkpoint.bucketSize(), (index + 1) * checkpoint.bucketSize()))
+                .append(Histograms.summary(histogram))
+                .append('\n'));
+        return table.toString();
+    }
+
+    private void writeBucketsCsv(GrowthCheckpoint checkpoint) {
+        var reportDir = reportOptions.reportDir();
+        if (reportDir == null) {
+            return;
+        }
+
+        var file = reportDir.resolve(BUCKETS_CSV);
+        try (var writer = Files.newBufferedWriter(file)) {
+            writer.write("bucket_start,bucket_end,count,p50_ms,p90_ms,p99_ms,p999_ms,max_ms\n");
+            for (var entry : checkpoint.buckets().entrySet()) {
+                var histogram = entry.getValue();
+                writer.write(String.format(
+                        "%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f\n",
+                        entry.getKey() * checkpoint.bucketSize(),
+                        (entry.getKey() + 1) * checkpoint.bucketSize(),
+                        histogram.getTotalCount(),
+                        Histograms.millis(histogram.getValueAtPercentile(50)),
+                        Histograms.millis(histogram.getValueAtPercentile(90)),
+                        Histograms.millis(histogram.getValueAtPercentile(99)),
+                        Histograms.millis(histogram.getValueAtPercentile(99.9)),
+                        Histograms.millis(histogram.getMaxValue())));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+        log.info("Wrote latency by repository object count to {}", file);
+    }
+
+    @Override
+    public String toString() {
+        return "GrowthLoadTestCmd{" + "targetObjectCount="
+                + targetObjectCount + ", threadCount="
+                + threadCount + ", checkpointFile="
+                + checkpointFile + ", checkpointInterval="
+                + checkpointInterval + ", bucketSize="
+                + bucketSize + ", tempDir="
+                + tempDir + ", storageOptions="
+                + storageOptions + ", fileSpecOptions="
+                + fileSpecOptions + ", repoOptions="
+                + repoOptions + ", reportOptions="
+                + reportOptions + ", s3TuningOptions="
+                + s3TuningOptions + '}';
+    }
+}
@@ -0,0 +1,69 @@
+package com.pwinckles.ocfl.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Helpers for reporting histograms that contain nanosecond latencies.
+ */
+public final class Histograms {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private Histograms() {}
+
+    public static Histogram newHistogram() {
+        return new Histogram(3);
+    }
+
+    public static String toMillis(Histogram histogram) {
+        var out = new ByteArrayOutputStream();
+        histogram.outputPercentileDistribution(new PrintStream(out), NANOS_PER_MILLI);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    public static String summary(Histogram histogram) {
+        return String.format(
+                "count=%d p50=%.3f p90=%.3f p99=%.3f max=%.3f",
+                histogram.getTotalCount(),
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getMaxValue()));
+    }
+
+    public static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    public static double mbPerSecond(long bytes, Duration duration) {
+        var seconds = duration.toNanos() / 1_000_000_000.0;
+        if (seconds <= 0) {
+            return 0;
+        }
+        return bytes / BYTES_PER_MB / seconds;
+    }
+
+    public static String encode(Histogram histogram) {
+        var buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        var length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+
+    public static Histogram decode(String encoded) {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(
+                    ByteBuffer.wrap(Base64.getDecoder().decode(encoded)), 0);
+        } catch (DataFormatException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid encoded histogram", e);
+        }
+    }
+}
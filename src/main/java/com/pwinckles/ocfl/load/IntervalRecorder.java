@@ -0,0 +1,238 @@
+package com.pwinckles.ocfl.load;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.SingleWriterRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records operation latencies from many threads and reports them at a fixed interval. Intervals that are recorded
+ * before {@link #startMeasuring()} is called are warmup and are not included in the totals.
+ */
+public class IntervalRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(IntervalRecorder.class);
+
+    private static final String CSV_HEADER =
+            "timestamp,elapsed_s,phase,ops,ops_per_s,mb_per_s,p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+
+    public record Totals(Histogram histogram, long bytes, Duration duration) {}
+
+    /**
+     * Receives every interval after it's reported.
+     */
+    @FunctionalInterface
+    public interface IntervalListener {
+        void onInterval(boolean measuring, Histogram histogram, long bytes);
+    }
+
+    private final String name;
+    private final Duration interval;
+    private final Path reportDir;
+
+    private final List<SingleWriterRecorder> recorders = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<SingleWriterRecorder> threadRecorder;
+    private final LongAdder bytes = new LongAdder();
+    private final Histogram total = Histograms.newHistogram();
+    private final Histogram merged = Histograms.newHistogram();
+    private final List<IntervalListener> listeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService scheduler;
+    private HistogramLogWriter logWriter;
+    private BufferedWriter csvWriter;
+
+    private boolean measuring;
+    private long startMillis;
+    private long lastIntervalMillis;
+    private long lastBytes;
+    private long measureStartNanos;
+    private long measureStartBytes;
+
+    public IntervalRecorder(String name, Duration interval, Path reportDir) {
+        this.name = Objects.requireNonNull(name, "name cannot be null");
+        this.interval = Objects.requireNonNull(interval, "interval cannot be null");
+        this.reportDir = reportDir;
+
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Interval must be greater than 0.");
+        }
+
+        this.threadRecorder = ThreadLocal.withInitial(() -> {
+            var recorder = new SingleWriterRecorder(3);
+            recorders.add(recorder);
+            return recorder;
+        });
+    }
+
+    public synchronized void start() {
+        startMillis = System.currentTimeMillis();
+        lastIntervalMillis = startMillis;
+
+        if (reportDir != null) {
+            try {
+                Files.createDirectories(reportDir);
+                logWriter =
+                        new HistogramLogWriter(reportDir.resolve(name + ".hlog").toFile());
+                logWriter.outputLogFormatVersion();
+                logWriter.outputStartTime(startMillis);
+                logWriter.setBaseTime(startMillis);
+                logWriter.outputLegend();
+                csvWriter = Files.newBufferedWriter(reportDir.resolve(name + ".csv"));
+                csvWriter.write(CSV_HEADER);
+                csvWriter.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, name + "-interval-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(
+                this::reportSafely, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void record(long nanos, long bytes) {
+        threadRecorder.get().recordValue(nanos);
+        this.bytes.add(bytes);
+    }
+
+    /**
+     * Back-fills the samples that would have been recorded had the operation not delayed the ones that followed it.
+     */
+    public void record(long nanos, long bytes, long expectedIntervalNanos) {
+        threadRecorder.get().recordValueWithExpectedInterval(nanos, expectedIntervalNanos);
+        this.bytes.add(bytes);
+    }
+
+    public synchronized void record(Histogram histogram, long bytes) {
+        merged.add(histogram);
+        this.bytes.add(bytes);
+    }
+
+    public void addListener(IntervalListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener cannot be null"));
+    }
+
+    public synchronized void startMeasuring() {
+        report();
+        total.reset();
+        measuring = true;
+        measureStartNanos = System.nanoTime();
+        measureStartBytes = bytes.sum();
+        if (logWriter != null) {
+            logWriter.outputComment("Measurement started");
+        }
+    }
+
+    public synchronized Totals stop() {
+        scheduler.shutdownNow();
+        report();
+
+        var duration = Duration.ofNanos(System.nanoTime() - measureStartNanos);
+
+        if (logWriter != null) {
+            logWriter.close();
+        }
+        if (csvWriter != null) {
+            try {
+                csvWriter.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
+        }
+
+        return new Totals(total.copy(), bytes.sum() - measureStartBytes, duration);
+    }
+
+    private void reportSafely() {
+        try {
+            synchronized (this) {
+                report();
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to report {} interval", name, e);
+        }
+    }
+
+    private void report() {
+        var nowMillis = System.currentTimeMillis();
+        var intervalHistogram = Histograms.newHistogram();
+        for (var recorder : recorders) {
+            intervalHistogram.add(recorder.getIntervalHistogram());
+        }
+        intervalHistogram.add(merged);
+        merged.reset();
+        intervalHistogram.setStartTimeStamp(lastIntervalMillis);
+        intervalHistogram.setEndTimeStamp(nowMillis);
+
+        var currentBytes = bytes.sum();
+        var intervalBytes = currentBytes - lastBytes;
+        var intervalDuration = Duration.ofMillis(nowMillis - lastIntervalMillis);
+        lastBytes = currentBytes;
+        lastIntervalMillis = nowMillis;
+
+        if (measuring) {
+            total.add(intervalHistogram);
+        }
+
+        var seconds = intervalDuration.toMillis() / 1000.0;
+        var opsPerSecond = seconds <= 0 ? 0 : intervalHistogram.getTotalCount() / seconds;
+        var mbPerSecond = Histograms.mbPerSecond(intervalBytes, intervalDuration);
+        var phase = measuring ? "measure" : "warmup";
+
+        log.info(
+                "{} interval ({}): {} ops/s {} MB/s {}",
+                name,
+                phase,
+                String.format("%.3f", opsPerSecond),
+                String.format("%.2f", mbPerSecond),
+                Histograms.summary(intervalHistogram));
+
+        if (logWriter != null) {
+            logWriter.outputIntervalHistogram(intervalHistogram);
+        }
+        if (csvWriter != null) {
+            try {
+                csvWriter.write(String.format(
+                        "%s,%.3f,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f",
+                        Instant.ofEpochMilli(nowMillis),
+                        (nowMillis - startMillis) / 1000.0,
+                        phase,
+                        intervalHistogram.getTotalCount(),
+                        opsPerSecond,
+                        mbPerSecond,
+                        Histograms.millis(intervalHistogram.getValueAtPercentile(50)),
+                        Histograms.millis(intervalHistogram.getValueAtPercentile(90)),
+                        Histograms.millis(intervalHistogram.getValueAtPercentile(99)),
+                        Histograms.millis(intervalHistogram.getValueAtPercentile(99.9)),
+                        Histograms.millis(intervalHistogram.getMaxValue())));
+                csvWriter.newLine();
+                csvWriter.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
+        }
+
+        for (var listener : listeners) {
+            listener.onInterval(measuring, intervalHistogram, intervalBytes);
+        }
+    }
+}
@@ -0,0 +1,966 @@
+package com.pwinckles.ocfl.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.ocfl.core.util.FileUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-process, file-backed, S3-compatible endpoint with a single bucket. It implements the subset of the S3 API
+ * that ocfl-java uses. Request signatures are not verified.
+ */
+public class LocalS3Server implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalS3Server.class);
+
+    public static final String BUCKET = "ocfl-load-test";
+    // The CRT client fails intermittently when responses are immediate
+    public static final Duration MIN_LATENCY = Duration.ofMillis(1);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_MAX_KEYS = 1000;
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    private static final Pattern PART_PATTERN =
+            Pattern.compile("<PartNumber>(\\d+)</PartNumber>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern KEY_PATTERN = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final Path bucketDir;
+    private final Path uploadsDir;
+    private final Path tempDir;
+    private final Duration latency;
+    private final Bandwidth bandwidth;
+    private final double errorRate;
+    private final double throttleRate;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder throttles = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    public LocalS3Server(
+            Path directory, Duration latency, double bandwidthMbPerSecond, double errorRate, double throttleRate) {
+        Objects.requireNonNull(directory, "directory cannot be null");
+        this.latency = Objects.requireNonNull(latency, "latency cannot be null");
+        if (latency.compareTo(MIN_LATENCY) < 0) {
+            throw new IllegalArgumentException("Latency must be " + MIN_LATENCY + " or more.");
+        }
+        if (bandwidthMbPerSecond < 0) {
+            throw new IllegalArgumentException("Bandwidth must be 0 or more.");
+        }
+        if (errorRate < 0 || throttleRate < 0 || errorRate + throttleRate > 1) {
+            throw new IllegalArgumentException(
+                    "Error and throttle rates must be 0 or more, and their sum must be 1 or less.");
+        }
+        this.bandwidth = bandwidthMbPerSecond == 0 ? null : new Bandwidth(bandwidthMbPerSecond * 1024 * 1024);
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+
+        try {
+            this.bucketDir = Files.createDirectories(directory.resolve(BUCKET));
+            this.uploadsDir = Files.createDirectories(directory.resolve(".uploads"));
+            this.tempDir = Files.createDirectories(directory.resolve(".tmp"));
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+
+        var count = new AtomicLong();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            var thread = new Thread(runnable, "local-s3-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+
+        log.info(
+                "Started local S3 endpoint at {} storing bucket {} in {}. Latency: {}; bandwidth: {} MB/s;"
+                        + " error rate: {}; throttle rate: {}",
+                endpoint(),
+                BUCKET,
+                directory,
+                latency,
+                bandwidthMbPerSecond == 0 ? "unlimited" : bandwidthMbPerSecond,
+                errorRate,
+                throttleRate);
+    }
+
+    public URI endpoint() {
+        var address = server.getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort());
+    }
+
+    public String bucket() {
+        return BUCKET;
+    }
+
+    public void clear() {
+        deleteChildren(bucketDir);
+        deleteChildren(uploadsDir);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        log.info(
+                "Local S3 endpoint handled {} requests, injected {} errors and {} throttles."
+                        + " Bytes received: {}; bytes sent: {}",
+                requests.sum(),
+                errors.sum(),
+                throttles.sum(),
+                bytesIn.sum(),
+                bytesOut.sum());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.increment();
+            TimeUnit.NANOSECONDS.sleep(latency.toNanos());
+
+            var failure = ThreadLocalRandom.current().nextDouble();
+            if (failure < errorRate) {
+                errors.increment();
+                drain(exchange);
+                sendError(exchange, 500, "InternalError", "We encountered an internal error. Please try again.");
+                return;
+            } else if (failure < errorRate + throttleRate) {
+                throttles.increment();
+                drain(exchange);
+                sendError(exchange, 503, "SlowDown", "Please reduce your request rate.");
+                return;
+            }
+
+            route(exchange);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            try {
+                drain(exchange);
+                sendError(exchange, 503, "SlowDown", "Please reduce your request rate.");
+            } catch (IOException | RuntimeException suppressed) {
+                // The response was already started
+            }
+        } catch (S3Exception e) {
+            drain(exchange);
+            sendError(exchange, e.status, e.code, e.getMessage());
+        } catch (RuntimeException | IOException e) {
+            log.warn(
+                    "Local S3 endpoint failed to handle {} {}",
+                    exchange.getRequestMethod(),
+                    exchange.getRequestURI(),
+                    e);
+            try {
+                sendError(exchange, 500, "InternalError", String.valueOf(e.getMessage()));
+            } catch (IOException | RuntimeException suppressed) {
+                // The response was already started
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException, InterruptedException {
+        var method = exchange.getRequestMethod();
+        var path = exchange.getRequestURI().getRawPath();
+        var query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        var slash = path.indexOf('/', 1);
+        var bucket = decode(slash == -1 ? path.substring(1) : path.substring(1, slash));
+        var key = slash == -1 ? "" : decode(path.substring(slash + 1));
+
+        if (!BUCKET.equals(bucket)) {
+            throw new S3Exception(404, "NoSuchBucket", "The specified bucket does not exist: " + bucket);
+        }
+
+        if (key.isEmpty()) {
+            switch (method) {
+                case "HEAD" -> send(exchange, 200, null);
+                case "GET" -> listObjects(exchange, query);
+                case "POST" -> {
+                    if (!query.containsKey("delete")) {
+                        throw notImplemented(method, query);
+                    }
+                    deleteObjects(exchange);
+                }
+                default -> throw notImplemented(method, query);
+            }
+            return;
+        }
+
+        switch (method) {
+            case "HEAD" -> headObject(exchange, key);
+            case "GET" -> getObject(exchange, key);
+            case "PUT" -> {
+                if (query.containsKey("uploadId")) {
+                    uploadPart(exchange, query.get("uploadId"), query.get("partNumber"));
+                } else if (exchange.getRequestHeaders().containsKey("x-amz-copy-source")) {
+                    copyObject(exchange, key);
+                } else {
+                    putObject(exchange, key);
+                }
+            }
+            case "POST" -> {
+                if (query.containsKey("uploads")) {
+                    createMultipartUpload(exchange, key);
+                } else if (query.containsKey("uploadId")) {
+                    completeMultipartUpload(exchange, key, query.get("uploadId"));
+                } else {
+                    throw notImplemented(method, query);
+                }
+            }
+            case "DELETE" -> {
+                if (query.containsKey("uploadId")) {
+                    FileUtil.safeDeleteDirectory(uploadDir(query.get("uploadId")));
+                } else {
+                    deleteObject(key);
+                }
+                drain(exchange);
+                send(exchange, 204, null);
+            }
+            default -> throw notImplemented(method, query);
+        }
+    }
+
+    private void headObject(HttpExchange exchange, String key) throws IOException {
+        var file = existingObject(key);
+        objectHeaders(exchange, file);
+        exchange.getResponseHeaders().set("Content-Length", String.valueOf(Files.size(file)));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void getObject(HttpExchange exchange, String key) throws IOException, InterruptedException {
+        var file = existingObject(key);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var size = channel.size();
+            var start = 0L;
+            var end = size - 1;
+            var status = 200;
+
+            var range = exchange.getRequestHeaders().getFirst("Range");
+            if (range != null) {
+                var matcher = RANGE_PATTERN.matcher(range.trim());
+                if (!matcher.matches()
+                        || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+                    throw new S3Exception(400, "InvalidArgument", "Invalid range: " + range);
+                }
+                if (matcher.group(1).isEmpty()) {
+                    start = Math.max(0, size - Long.parseLong(matcher.group(2)));
+                } else {
+                    start = Long.parseLong(matcher.group(1));
+                    if (!matcher.group(2).isEmpty()) {
+                        end = Math.min(end, Long.parseLong(matcher.group(2)));
+                    }
+                }
+                if (start >= size) {
+                    exchange.getResponseHeaders().set("Content-Range", "bytes */" + size);
+                    throw new S3Exception(416, "InvalidRange", "The requested range is not satisfiable");
+                }
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + size);
+                status = 206;
+            }
+
+            var length = end - start + 1;
+            objectHeaders(exchange, file);
+            exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+
+            if (length > 0) {
+                var out = exchange.getResponseBody();
+                var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                var position = start;
+                while (position <= end) {
+                    buffer.clear().limit((int) Math.min(BUFFER_SIZE, end - position + 1));
+                    var read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of file " + file);
+                    }
+                    throttle(read);
+                    out.write(buffer.array(), 0, read);
+                    position += read;
+                    bytesOut.add(read);
+                }
+            }
+        }
+    }
+
+    private void putObject(HttpExchange exchange, String key) throws IOException, InterruptedException {
+        var temp = receiveBody(exchange);
+        var file = moveToObject(temp, key);
+        objectHeaders(exchange, file);
+        send(exchange, 200, null);
+    }
+
+    private void copyObject(HttpExchange exchange, String key) throws IOException {
+        var source = copySource(exchange);
+        var temp = Files.createTempFile(tempDir, "copy", ".tmp");
+        Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+        drain(exchange);
+        var file = moveToObject(temp, key);
+        send(
+                exchange,
+                200,
+                "<CopyObjectResult><ETag>" + xml(etag(file)) + "</ETag><LastModified>" + lastModified(file)
+                        + "</LastModified></CopyObjectResult>");
+    }
+
+    private void deleteObjects(HttpExchange exchange) throws IOException {
+        var body = new String(readSmallBody(exchange), StandardCharsets.UTF_8);
+        var quiet = body.contains("<Quiet>true</Quiet>");
+        var result = new StringBuilder("<DeleteResult>");
+        var matcher = KEY_PATTERN.matcher(body);
+        while (matcher.find()) {
+            var key = unxml(matcher.group(1));
+            deleteObject(key);
+            if (!quiet) {
+                result.append("<Deleted><Key>").append(xml(key)).append("</Key></Deleted>");
+            }
+        }
+        send(exchange, 200, result.append("</DeleteResult>").toString());
+    }
+
+    /**
+     * Empty parent directories are deleted so that a later key can use the directory's path as a file.
+     */
+    private void deleteObject(String key) throws IOException {
+        var file = objectPath(key);
+        if (!Files.deleteIfExists(file)) {
+            return;
+        }
+        for (var dir = file.getParent(); dir != null && !dir.equals(bucketDir); dir = dir.getParent()) {
+            try {
+                Files.delete(dir);
+            } catch (DirectoryNotEmptyException | NoSuchFileException e) {
+                return;
+            }
+        }
+    }
+
+    private void listObjects(HttpExchange exchange, Map<String, String> query) throws IOException {
+        var prefix = query.getOrDefault("prefix", "");
+        var delimiter = query.getOrDefault("delimiter", "");
+        var maxKeys = query.containsKey("max-keys") ? Integer.parseInt(query.get("max-keys")) : DEFAULT_MAX_KEYS;
+        var after = query.getOrDefault("continuation-token", query.getOrDefault("start-after", ""));
+
+        // Only walk the deepest directory that every matching key must be in
+        var base = bucketDir;
+        var lastSlash = prefix.lastIndexOf('/');
+        if (lastSlash > 0) {
+            base = objectPath(prefix.substring(0, lastSlash));
+        }
+
+        var keys = new TreeSet<String>();
+        if (Files.isDirectory(base)) {
+            if ("/".equals(delimiter)) {
+                listLevel(base, prefix, keys);
+            } else {
+                walkKeys(base, prefix, keys);
+            }
+        }
+
+        var contents = new StringBuilder();
+        var commonPrefixes = new StringBuilder();
+        var count = 0;
+        var last = "";
+        var truncated = false;
+        String lastPrefix = null;
+
+        for (var key : keys.tailSet(after, false)) {
+            if (!after.isEmpty() && !delimiter.isEmpty() && after.endsWith(delimiter) && key.startsWith(after)) {
+                continue;
+            }
+
+            String commonPrefix = null;
+            if (!delimiter.isEmpty()) {
+                var index = key.indexOf(delimiter, prefix.length());
+                if (index != -1) {
+                    commonPrefix = key.substring(0, index + delimiter.length());
+                }
+            }
+            if (commonPrefix != null && commonPrefix.equals(lastPrefix)) {
+                continue;
+            }
+
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+
+            if (commonPrefix != null) {
+                commonPrefixes
+                        .append("<CommonPrefixes><Prefix>")
+                        .append(xml(commonPrefix))
+                        .append("</Prefix></CommonPrefixes>");
+                lastPrefix = commonPrefix;
+                last = commonPrefix;
+            } else {
+                var file = objectPath(key);
+                long size;
+                String modified;
+                String etag;
+                try {
+                    size = Files.size(file);
+                    modified = lastModified(file);
+                    etag = etag(file);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                contents.append("<Contents><Key>")
+                        .append(xml(key))
+                        .append("</Key><LastModified>")
+                        .append(modified)
+                        .append("</LastModified><ETag>")
+                        .append(xml(etag))
+                        .append("</ETag><Size>")
+                        .append(size)
+                        .append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+                last = key;
+            }
+            count++;
+        }
+
+        var result = new StringBuilder("<ListBucketResult><Name>")
+                .append(BUCKET)
+                .append("</Name><Prefix>")
+                .append(xml(prefix))
+                .append("</Prefix><KeyCount>")
+                .append(count)
+                .append("</KeyCount><MaxKeys>")
+                .append(maxKeys)
+                .append("</MaxKeys>");
+        if (!delimiter.isEmpty()) {
+            result.append("<Delimiter>").append(xml(delimiter)).append("</Delimiter>");
+        }
+        result.append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (query.containsKey("continuation-token")) {
+            result.append("<ContinuationToken>")
+                    .append(xml(query.get("continuation-token")))
+                    .append("</ContinuationToken>");
+        }
+        if (truncated) {
+            result.append("<NextContinuationToken>").append(xml(last)).append("</NextContinuationToken>");
+        }
+        result.append(contents).append(commonPrefixes).append("</ListBucketResult>");
+
+        send(exchange, 200, result.toString());
+    }
+
+    /**
+     * Directories are added as their key with a trailing slash, which the listing rolls up into a common prefix.
+     * Empty directories are pruned when objects are deleted, so every directory holds at least one object.
+     */
+    private void listLevel(Path dir, String prefix, Set<String> keys) throws IOException {
+        try (var entries = Files.list(dir)) {
+            for (var entry : (Iterable<Path>) entries::iterator) {
+                var key = bucketDir.relativize(entry).toString().replace('\\', '/');
+                if (Files.isDirectory(entry)) {
+                    key += "/";
+                } else if (!Files.isRegularFile(entry)) {
+                    continue;
+                }
+                if (key.startsWith(prefix)) {
+                    keys.add(key);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // The directory was deleted with its last object
+        }
+    }
+
+    private void walkKeys(Path base, String prefix, Set<String> keys) throws IOException {
+        Files.walkFileTree(base, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    var key = bucketDir.relativize(file).toString().replace('\\', '/');
+                    if (key.startsWith(prefix)) {
+                        keys.add(key);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                // Objects may be deleted while the bucket is walked
+                if (e instanceof NoSuchFileException) {
+                    return FileVisitResult.CONTINUE;
+                }
+                throw e;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null && !(e instanceof NoSuchFileException)) {
+                    throw e;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void createMultipartUpload(HttpExchange exchange, String key) throws IOException {
+        drain(exchange);
+        var uploadId = UUID.randomUUID().toString();
+        Files.createDirectories(uploadsDir.resolve(uploadId));
+        send(
+                exchange,
+                200,
+                "<InitiateMultipartUploadResult><Bucket>" + BUCKET + "</Bucket><Key>" + xml(key) + "</Key><UploadId>"
+                        + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+    }
+
+    private void uploadPart(HttpExchange exchange, String uploadId, String partNumber)
+            throws IOException, InterruptedException {
+        var part = partPath(uploadId, partNumber);
+
+        if (exchange.getRequestHeaders().containsKey("x-amz-copy-source")) {
+            var source = copySource(exchange);
+            drain(exchange);
+            var temp = Files.createTempFile(tempDir, "part", ".tmp");
+            try (var in = FileChannel.open(source, StandardOpenOption.READ);
+                    var out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                var start = 0L;
+                var end = in.size() - 1;
+                var range = exchange.getRequestHeaders().getFirst("x-amz-copy-source-range");
+                if (range != null) {
+                    var matcher = RANGE_PATTERN.matcher(range.trim());
+                    if (!matcher.matches()
+                            || matcher.group(1).isEmpty()
+                            || matcher.group(2).isEmpty()) {
+                        throw new S3Exception(400, "InvalidArgument", "Invalid copy source range: " + range);
+                    }
+                    start = Long.parseLong(matcher.group(1));
+                    end = Math.min(end, Long.parseLong(matcher.group(2)));
+                }
+                var position = start;
+                while (position <= end) {
+                    position += in.transferTo(position, end - position + 1, out);
+                }
+            }
+            Files.move(temp, part, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            send(
+                    exchange,
+                    200,
+                    "<CopyPartResult><ETag>" + xml(etag(part)) + "</ETag><LastModified>" + lastModified(part)
+                            + "</LastModified></CopyPartResult>");
+            return;
+        }
+
+        var temp = receiveBody(exchange);
+        Files.move(temp, part, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        exchange.getResponseHeaders().set("ETag", etag(part));
+        send(exchange, 200, null);
+    }
+
+    private void completeMultipartUpload(HttpExchange exchange, String key, String uploadId) throws IOException {
+        var uploadDir = uploadDir(uploadId);
+        var body = new String(readSmallBody(exchange), StandardCharsets.UTF_8);
+
+        var temp = Files.createTempFile(tempDir, "complete", ".tmp");
+        try (var out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            var matcher = PART_PATTERN.matcher(body);
+            while (matcher.find()) {
+                var part = partPath(uploadId, matcher.group(1));
+                if (Files.notExists(part)) {
+                    throw new S3Exception(400, "InvalidPart", "Part " + matcher.group(1) + " was not uploaded");
+                }
+                try (var in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    var position = 0L;
+                    var size = in.size();
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        var file = moveToObject(temp, key);
+        FileUtil.safeDeleteDirectory(uploadDir);
+        send(
+                exchange,
+                200,
+                "<CompleteMultipartUploadResult><Location>" + xml(endpoint() + "/" + BUCKET + "/" + key)
+                        + "</Location><Bucket>" + BUCKET + "</Bucket><Key>" + xml(key) + "</Key><ETag>"
+                        + xml(etag(file)) + "</ETag></CompleteMultipartUploadResult>");
+    }
+
+    private Path receiveBody(HttpExchange exchange) throws IOException, InterruptedException {
+        var temp = Files.createTempFile(tempDir, "put", ".tmp");
+        try (var in = requestBody(exchange);
+                var out = Files.newOutputStream(temp)) {
+            var buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                throttle(read);
+                out.write(buffer, 0, read);
+                bytesIn.add(read);
+            }
+        } catch (IOException | RuntimeException | InterruptedException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    private InputStream requestBody(HttpExchange exchange) {
+        var headers = exchange.getRequestHeaders();
+        var encoding = headers.getFirst("Content-Encoding");
+        var sha256 = headers.getFirst("x-amz-content-sha256");
+        if ((encoding != null && encoding.contains("aws-chunked"))
+                || (sha256 != null && sha256.startsWith("STREAMING-"))) {
+            return new AwsChunkedInputStream(exchange.getRequestBody());
+        }
+        return exchange.getRequestBody();
+    }
+
+    private byte[] readSmallBody(HttpExchange exchange) throws IOException {
+        try (var in = requestBody(exchange)) {
+            var bytes = in.readAllBytes();
+            bytesIn.add(bytes.length);
+            return bytes;
+        }
+    }
+
+    private Path moveToObject(Path temp, String key) throws IOException {
+        var file = objectPath(key);
+        try {
+            try {
+                Files.createDirectories(file.getParent());
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                // A concurrent delete pruned the parent directory after it was created
+                Files.createDirectories(file.getParent());
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(temp);
+            throw new S3Exception(400, "InvalidArgument", "Key conflicts with an existing prefix: " + key);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return file;
+    }
+
+    private Path copySource(HttpExchange exchange) {
+        var source = decode(exchange.getRequestHeaders().getFirst("x-amz-copy-source"));
+        if (source.startsWith("/")) {
+            source = source.substring(1);
+        }
+        var query = source.indexOf('?');
+        if (query != -1) {
+            source = source.substring(0, query);
+        }
+        var slash = source.indexOf('/');
+        if (slash == -1 || !BUCKET.equals(source.substring(0, slash))) {
+            throw new S3Exception(404, "NoSuchBucket", "The specified copy source bucket does not exist");
+        }
+        return existingObject(source.substring(slash + 1));
+    }
+
+    private Path existingObject(String key) {
+        var file = objectPath(key);
+        if (!Files.isRegularFile(file)) {
+            throw new S3Exception(404, "NoSuchKey", "The specified key does not exist.");
+        }
+        return file;
+    }
+
+    private Path objectPath(String key) {
+        var file = bucketDir.resolve(key).normalize();
+        if (!file.startsWith(bucketDir) || file.equals(bucketDir) || key.endsWith("/")) {
+            throw new S3Exception(400, "InvalidArgument", "Unsupported key: " + key);
+        }
+        return file;
+    }
+
+    private Path uploadDir(String uploadId) {
+        var dir = uploadsDir.resolve(uploadId).normalize();
+        if (!dir.getParent().equals(uploadsDir) || !Files.isDirectory(dir)) {
+            throw new S3Exception(404, "NoSuchUpload", "The specified upload does not exist: " + uploadId);
+        }
+        return dir;
+    }
+
+    private Path partPath(String uploadId, String partNumber) {
+        try {
+            return uploadDir(uploadId).resolve(String.valueOf(Integer.parseInt(partNumber)));
+        } catch (NumberFormatException e) {
+            throw new S3Exception(400, "InvalidArgument", "Invalid part number: " + partNumber);
+        }
+    }
+
+    private void objectHeaders(HttpExchange exchange, Path file) throws IOException {
+        var headers = exchange.getResponseHeaders();
+        var modified = Files.getLastModifiedTime(file).toInstant();
+        headers.set("ETag", etag(file));
+        headers.set("Last-Modified", HTTP_DATE.format(modified));
+        headers.set("Accept-Ranges", "bytes");
+        headers.set("Content-Type", "application/octet-stream");
+    }
+
+    private void throttle(int bytes) throws InterruptedException {
+        if (bandwidth != null) {
+            bandwidth.acquire(bytes);
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, String xmlBody) throws IOException {
+        exchange.getResponseHeaders().set("x-amz-request-id", UUID.randomUUID().toString());
+        if (xmlBody == null || "HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        var bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + xmlBody).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        send(
+                exchange,
+                status,
+                "<Error><Code>" + code + "</Code><Message>" + xml(message) + "</Message><Resource>"
+                        + xml(exchange.getRequestURI().getRawPath()) + "</Resource></Error>");
+    }
+
+    private static void drain(HttpExchange exchange) {
+        try (var in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            // The connection is closed after the response if the body can't be drained
+        }
+    }
+
+    private static void deleteChildren(Path directory) {
+        try (var children = Files.list(directory)) {
+            children.forEach(child -> {
+                if (Files.isDirectory(child)) {
+                    FileUtil.safeDeleteDirectory(child);
+                } else {
+                    try {
+                        Files.deleteIfExists(child);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e.getMessage(), e);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+
+    private static String etag(Path file) throws IOException {
+        var size = Files.size(file);
+        var modified = Files.getLastModifiedTime(file).to(TimeUnit.NANOSECONDS);
+        return String.format("\"%016x%016x\"", size, modified);
+    }
+
+    private static String lastModified(Path file) throws IOException {
+        return DateTimeFormatter.ISO_INSTANT.format(
+                Files.getLastModifiedTime(file).toInstant().truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        var query = new HashMap<String, String>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (var param : rawQuery.split("&")) {
+            var equals = param.indexOf('=');
+            if (equals == -1) {
+                query.put(decode(param), "");
+            } else {
+                query.put(decode(param.substring(0, equals)), decode(param.substring(equals + 1)));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Percent decodes a value. Unlike form decoding, '+' is left as is.
+     */
+    private static String decode(String value) {
+        return URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    private static String xml(String value) {
+        return value.replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;")
+                .replace("\"", "&quot;")
+                .replace("'", "&apos;");
+    }
+
+    private static String unxml(String value) {
+        return value.replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&amp;", "&");
+    }
+
+    private static S3Exception notImplemented(String method, Map<String, String> query) {
+        return new S3Exception(
+                501, "NotImplemented", "The local S3 endpoint does not support " + method + " " + query.keySet());
+    }
+
+    private static class S3Exception extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+        private final String code;
+
+        S3Exception(int status, String code, String message) {
+            super(message);
+            this.status = status;
+            this.code = code;
+        }
+    }
+
+    /**
+     * A bandwidth cap that's shared by every request.
+     */
+    private static class Bandwidth {
+        private final double nanosPerByte;
+        private long nextFree;
+
+        Bandwidth(double bytesPerSecond) {
+            this.nanosPerByte = 1_000_000_000.0 / bytesPerSecond;
+            this.nextFree = System.nanoTime();
+        }
+
+        void acquire(int bytes) throws InterruptedException {
+            long until;
+            synchronized (this) {
+                var now = System.nanoTime();
+                var start = Math.max(now, nextFree);
+                nextFree = start + (long) (bytes * nanosPerByte);
+                until = nextFree;
+            }
+            var wait = until - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+
+    /**
+     * Decodes a body that was sent with {@code aws-chunked} content encoding.
+     */
+    private static class AwsChunkedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+        private boolean done;
+
+        AwsChunkedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining == 0 && !nextChunk()) {
+                return -1;
+            }
+            var read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read == -1) {
+                throw new IOException("Unexpected end of aws-chunked body");
+            }
+            remaining -= read;
+            if (remaining == 0) {
+                readLine();
+            }
+            return read;
+        }
+
+        private boolean nextChunk() throws IOException {
+            if (done) {
+                return false;
+            }
+            var header = readLine();
+            var semicolon = header.indexOf(';');
+            var size = Long.parseLong((semicolon == -1 ? header : header.substring(0, semicolon)).trim(), 16);
+            if (size == 0) {
+                done = true;
+                in.transferTo(OutputStream.nullOutputStream());
+                return false;
+            }
+            remaining = size;
+            return true;
+        }
+
+        private String readLine() throws IOException {
+            var line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return line.toString(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
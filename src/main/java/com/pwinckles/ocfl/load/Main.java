@@ -1,10 +1,49 @@
 package com.pwinckles.ocfl.load;
 
+import java.util.Set;
+import java.util.stream.Stream;
 import picocli.CommandLine;
 
-public class Main {
+@CommandLine.Command(
+        name = "ocfl-java-load-tester",
+        description = "Runs load tests against an OCFL repository. Runs new-obj-test when no subcommand is given.",
+        subcommands = {
+            NewObjectLoadTestCmd.class,
+            ReadObjectLoadTestCmd.class,
+            MixedLoadTestCmd.class,
+            ValidateLoadTestCmd.class,
+            GrowthLoadTestCmd.class,
+            SweepCmd.class,
+            CoordinatorCmd.class
+        },
+        mixinStandardHelpOptions = true)
+public class Main implements Runnable {
+
+    private static final String DEFAULT_SUBCOMMAND = "new-obj-test";
+    private static final Set<String> MAIN_OPTIONS = Set.of("-h", "--help", "-V", "--version");
+
+    @CommandLine.Spec
+    private CommandLine.Model.CommandSpec spec;
 
     public static void main(String[] args) {
-        System.exit(new CommandLine(new NewObjectLoadTestCmd()).execute(args));
+        var commandLine = new CommandLine(new Main());
+        System.exit(commandLine.execute(withDefaultSubcommand(commandLine, args)));
+    }
+
+    /**
+     * Invocations from before subcommands existed, such as {@code run.sh --dir ... --threads 10}, start with
+     * new-obj-test options, so they're routed to new-obj-test.
+     */
+    private static String[] withDefaultSubcommand(CommandLine commandLine, String[] args) {
+        if (args.length > 0
+                && (commandLine.getSubcommands().containsKey(args[0]) || MAIN_OPTIONS.contains(args[0]))) {
+            return args;
+        }
+        return Stream.concat(Stream.of(DEFAULT_SUBCOMMAND), Stream.of(args)).toArray(String[]::new);
+    }
+
+    @Override
+    public void run() {
+        throw new CommandLine.ParameterException(spec.commandLine(), "Missing required subcommand");
     }
 }
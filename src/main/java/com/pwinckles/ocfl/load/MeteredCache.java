@@ -0,0 +1,97 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.core.cache.Cache;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Cache wrapper that counts hits, misses, and evictions and times lookups.
+ */
+public class MeteredCache<K, V> implements Cache<K, V> {
+
+    private final Cache<K, V> delegate;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions;
+    private final Histogram hitHistogram = new ConcurrentHistogram(3);
+    private final Histogram missHistogram = new ConcurrentHistogram(3);
+
+    public MeteredCache(Cache<K, V> delegate) {
+        this(delegate, new LongAdder());
+    }
+
+    public MeteredCache(Cache<K, V> delegate, LongAdder evictions) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+        this.evictions = Objects.requireNonNull(evictions, "evictions cannot be null");
+    }
+
+    @Override
+    public V get(K key, Function<K, V> loader) {
+        var loaded = new boolean[1];
+        var start = System.nanoTime();
+        var value = delegate.get(key, k -> {
+            loaded[0] = true;
+            return loader.apply(k);
+        });
+        var duration = System.nanoTime() - start;
+
+        if (loaded[0]) {
+            misses.increment();
+            missHistogram.recordValue(duration);
+        } else {
+            hits.increment();
+            hitHistogram.recordValue(duration);
+        }
+
+        return value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public void invalidate(K key) {
+        delegate.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        delegate.invalidateAll();
+    }
+
+    @Override
+    public boolean contains(K key) {
+        return delegate.contains(key);
+    }
+
+    /**
+     * The cache's entries are kept.
+     */
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        hitHistogram.reset();
+        missHistogram.reset();
+    }
+
+    public String report() {
+        var hitCount = hits.sum();
+        var total = hitCount + misses.sum();
+        var hitRate = total == 0 ? 0 : hitCount * 100.0 / total;
+        return String.format(
+                "hits=%d misses=%d evictions=%d hitRate=%.2f%%%nhit latency:  %s%nmiss latency: %s",
+                hitCount,
+                misses.sum(),
+                evictions.sum(),
+                hitRate,
+                Histograms.summary(hitHistogram),
+                Histograms.summary(missHistogram));
+    }
+}
@@ -0,0 +1,501 @@
+package com.pwinckles.ocfl.load;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.ocfl.api.OcflOption;
+import io.ocfl.api.OcflRepository;
+import io.ocfl.api.exception.CorruptObjectException;
+import io.ocfl.api.exception.LockException;
+import io.ocfl.api.exception.ObjectOutOfSyncException;
+import io.ocfl.api.exception.OcflIOException;
+import io.ocfl.api.model.ObjectVersionId;
+import io.ocfl.api.model.VersionInfo;
+import io.ocfl.core.util.FileUtil;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a weighted mix of operations against a seeded population of objects that are chosen with a Zipf distribution.
+ */
+public class MixedLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(MixedLoadTest.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Operation {
+        CREATE,
+        UPDATE,
+        READ,
+        DESCRIBE,
+        LIST_VERSIONS
+    }
+
+    public record OperationResults(
+            Histogram histogram, long retries, long conflicts, long lockTimeouts, long failures) {}
+
+    public record Results(
+            IntervalRecorder.Totals totals,
+            Map<Operation, OperationResults> operations,
+            Histogram lockWaitHistogram,
+            long lockTimeouts,
+            int populationSize,
+            ResourceSampler.Totals resources) {}
+
+    private final OcflRepository repo;
+    private final int objectCount;
+    private final long iterations;
+    private final long warmupIterations;
+    private final int threadCount;
+    private final Map<Operation, Integer> weights;
+    private final double zipfExponent;
+    private final int maxRetries;
+    private final Map<String, FileSpec.ObjectFile> objectFiles;
+    private final List<String> logicalPaths;
+    private final long seed;
+    private final double compressibility;
+    private final long objectSize;
+    private final TimedObjectLock objectLock;
+    private final MeteredCache<?, ?> inventoryCache;
+    private final IntervalRecorder intervalRecorder;
+    private final ResourceSampler resourceSampler;
+
+    private final ObjectGenerator objectGenerator;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final AtomicLong createdCount = new AtomicLong();
+    // A CREATE that fails part way may leave its object behind, so failed CREATEs are purged too
+    private final Queue<String> failedCreates = new ConcurrentLinkedQueue<>();
+
+    public MixedLoadTest(
+            OcflRepository repo,
+            Path tempDir,
+            int objectCount,
+            long iterations,
+            long warmupIterations,
+            int threadCount,
+            Map<Operation, Integer> weights,
+            double zipfExponent,
+            int maxRetries,
+            Map<String, FileSpec.ObjectFile> objectFiles,
+            long seed,
+            double compressibility,
+            TimedObjectLock objectLock,
+            MeteredCache<?, ?> inventoryCache,
+            IntervalRecorder intervalRecorder,
+            ResourceSampler resourceSampler) {
+        if (objectCount < 1) {
+            throw new IllegalArgumentException("Object count must be 1 or more.");
+        }
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be 1 or more.");
+        }
+        if (warmupIterations < 1) {
+            throw new IllegalArgumentException("Warmup iterations must be 1 or more.");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be 1 or more.");
+        }
+        if (weights == null || weights.values().stream().anyMatch(weight -> weight < 0)) {
+            throw new IllegalArgumentException("Operation weights must be 0 or more.");
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() < 1) {
+            throw new IllegalArgumentException("At least one operation must have a weight greater than 0.");
+        }
+        if (zipfExponent < 0) {
+            throw new IllegalArgumentException("Zipf exponent must be 0 or more.");
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Max retries must be 0 or more.");
+        }
+        if (objectFiles == null || objectFiles.isEmpty()) {
+            throw new IllegalArgumentException("File spec must contain 1 or more files.");
+        }
+
+        this.repo = Objects.requireNonNull(repo);
+        this.objectCount = objectCount;
+        this.iterations = iterations;
+        this.warmupIterations = warmupIterations;
+        this.threadCount = threadCount;
+        this.weights = new EnumMap<>(weights);
+        this.zipfExponent = zipfExponent;
+        this.maxRetries = maxRetries;
+        this.objectFiles = objectFiles;
+        this.logicalPaths = List.copyOf(objectFiles.keySet());
+        this.seed = seed;
+        this.compressibility = compressibility;
+        this.objectSize = objectFiles.values().stream()
+                .mapToLong(FileSpec.ObjectFile::size)
+                .sum();
+        this.objectLock = Objects.requireNonNull(objectLock);
+        this.inventoryCache = Objects.requireNonNull(inventoryCache);
+        this.intervalRecorder = Objects.requireNonNull(intervalRecorder);
+        this.resourceSampler = Objects.requireNonNull(resourceSampler);
+
+        this.objectGenerator = new ObjectGenerator(Objects.requireNonNull(tempDir), seed, compressibility);
+        for (var operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public Results run() throws InterruptedException {
+        log.info("Starting mixed load test");
+
+        var objectPath = objectGenerator.generate(objectFiles);
+        var population = new Population(zipfExponent);
+
+        intervalRecorder.start();
+        resourceSampler.start();
+
+        IntervalRecorder.Totals totals;
+        ResourceSampler.Totals resources;
+        try {
+            seed(objectPath, population);
+
+            var threads = new ArrayList<Thread>(threadCount);
+            var phaser = new Phaser(threadCount + 1);
+            var random = new SplittableRandom(seed);
+
+            for (var i = 0; i < threadCount; i++) {
+                threads.add(createThread(objectPath, population, random.split(), phaser));
+            }
+
+            threads.forEach(Thread::start);
+
+            phaser.arriveAndAwaitAdvance();
+            stats.values().forEach(OperationStats::reset);
+            objectLock.reset();
+            inventoryCache.reset();
+            intervalRecorder.startMeasuring();
+            resourceSampler.startMeasuring();
+            phaser.arriveAndAwaitAdvance();
+
+            for (var thread : threads) {
+                thread.join();
+            }
+        } finally {
+            try {
+                totals = intervalRecorder.stop();
+                resources = resourceSampler.stop();
+            } finally {
+                FileUtil.safeDeleteDirectory(objectPath);
+                purge(population.ids());
+                // Purging an object that doesn't exist does nothing
+                purge(List.copyOf(failedCreates));
+            }
+        }
+
+        var operations = new EnumMap<Operation, OperationResults>(Operation.class);
+        stats.forEach((operation, operationStats) -> operations.put(operation, operationStats.results()));
+
+        log.info("Mixed load test complete");
+        return new Results(
+                totals,
+                operations,
+                objectLock.waitHistogram(),
+                objectLock.timeouts(),
+                population.size(),
+                resources);
+    }
+
+    private void seed(Path objectPath, Population population) throws InterruptedException {
+        log.info("Seeding repository with {} objects", objectCount);
+
+        var seedStart = Instant.now();
+        var versionInfo = newVersionInfo("Seeding");
+
+        var executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            var futures = new ArrayList<Future<?>>(objectCount);
+            for (var i = 0; i < objectCount; i++) {
+                var objectId = population.prefix() + i;
+                futures.add(
+                        executor.submit(() -> repo.putObject(ObjectVersionId.head(objectId), objectPath, versionInfo)));
+                // Objects are ranked in the order they're seeded, regardless of the order they're written in
+                population.add(objectId);
+            }
+            for (var future : futures) {
+                getFuture(future);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info("Seeded {} objects in {}", objectCount, Duration.between(seedStart, Instant.now()));
+    }
+
+    private void purge(List<String> objectIds) {
+        log.info("Purging {} objects", objectIds.size());
+        for (var objectId : objectIds) {
+            try {
+                repo.purgeObject(objectId);
+            } catch (RuntimeException e) {
+                log.error("Failed to purge object {}", objectId, e);
+            }
+        }
+    }
+
+    private Thread createThread(Path objectPath, Population population, SplittableRandom random, Phaser phaser) {
+        return new Thread() {
+            private final String id = UUID.randomUUID().toString();
+
+            @Override
+            public void run() {
+                setName(id);
+                log.info("Starting thread {}", id);
+
+                try {
+                    log.info("Running warmup for {} operations", warmupIterations);
+                    runInner(warmupIterations);
+
+                    log.info("Warmup complete. Waiting for other threads to finish.");
+                    phaser.arriveAndAwaitAdvance();
+                    phaser.arriveAndAwaitAdvance();
+
+                    log.info("Running mixed load test for {} operations", iterations);
+                    runInner(iterations);
+
+                    log.info("Completed test in thread {}", id);
+                } catch (InterruptedException e) {
+                    log.info("Thread interrupted");
+                } catch (RuntimeException e) {
+                    log.error("Error running test. Thread exiting.", e);
+                }
+            }
+
+            private void runInner(long iterations) throws InterruptedException {
+                var runStart = Instant.now();
+
+                for (long i = 0; i < iterations; i++) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    runOperation(nextOperation(random), objectPath, population, random);
+                }
+
+                log.info("Run completed in {}", Duration.between(runStart, Instant.now()));
+            }
+        };
+    }
+
+    private Operation nextOperation(SplittableRandom random) {
+        var total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        var pick = random.nextInt(total);
+        for (var entry : weights.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("No operation was picked");
+    }
+
+    /**
+     * Only the operations that succeed are recorded as latencies.
+     */
+    private void runOperation(Operation operation, Path objectPath, Population population, SplittableRandom random) {
+        var operationStats = stats.get(operation);
+        var objectId = operation == Operation.CREATE
+                ? population.prefix() + "created-" + createdCount.getAndIncrement()
+                : population.sample(random);
+        var start = System.nanoTime();
+        var created = false;
+
+        try {
+            for (var attempt = 0; ; attempt++) {
+                try {
+                    var bytes = attempt(operation, objectId, objectPath, random);
+                    var duration = System.nanoTime() - start;
+                    operationStats.histogram.recordValue(duration);
+                    intervalRecorder.record(duration, bytes);
+                    if (operation == Operation.CREATE) {
+                        population.add(objectId);
+                        created = true;
+                    }
+                    return;
+                } catch (ObjectOutOfSyncException e) {
+                    operationStats.conflicts.increment();
+                    if (!retry(operation, objectId, attempt, operationStats)) {
+                        return;
+                    }
+                } catch (LockException e) {
+                    operationStats.lockTimeouts.increment();
+                    if (!retry(operation, objectId, attempt, operationStats)) {
+                        return;
+                    }
+                } catch (RuntimeException e) {
+                    if (isTornInventory(e)) {
+                        operationStats.conflicts.increment();
+                        if (!retry(operation, objectId, attempt, operationStats)) {
+                            return;
+                        }
+                        continue;
+                    }
+                    operationStats.failures.increment();
+                    log.error("Failed to {} object {}", operation, objectId, e);
+                    return;
+                }
+            }
+        } finally {
+            if (operation == Operation.CREATE && !created) {
+                failedCreates.add(objectId);
+            }
+        }
+    }
+
+    /**
+     * Readers don't take the object's lock, so they may see an inventory while an update is replacing it.
+     */
+    private static boolean isTornInventory(RuntimeException e) {
+        return e instanceof CorruptObjectException
+                || (e instanceof OcflIOException && e.getCause() instanceof JsonProcessingException);
+    }
+
+    private boolean retry(Operation operation, String objectId, int attempt, OperationStats operationStats) {
+        if (attempt < maxRetries) {
+            operationStats.retries.increment();
+            return true;
+        }
+        operationStats.failures.increment();
+        log.warn("Failed to {} object {} after {} retries", operation, objectId, maxRetries);
+        return false;
+    }
+
+    private long attempt(Operation operation, String objectId, Path objectPath, SplittableRandom random) {
+        return switch (operation) {
+            case CREATE -> {
+                repo.putObject(ObjectVersionId.head(objectId), objectPath, newVersionInfo("Create"));
+                yield objectSize;
+            }
+            case UPDATE -> {
+                var logicalPath = logicalPaths.get(random.nextInt(logicalPaths.size()));
+                var size = objectFiles.get(logicalPath).size();
+                var contentSeed = random.nextLong();
+                repo.updateObject(ObjectVersionId.head(objectId), newVersionInfo("Update"), updater -> {
+                    updater.writeFile(
+                            new RandomInputStream(size, contentSeed, compressibility),
+                            logicalPath,
+                            OcflOption.OVERWRITE);
+                });
+                yield size;
+            }
+            case READ -> streamObject(objectId);
+            case DESCRIBE -> {
+                repo.describeVersion(ObjectVersionId.head(objectId));
+                yield 0;
+            }
+            case LIST_VERSIONS -> {
+                repo.describeObject(objectId).getVersionMap();
+                yield 0;
+            }
+        };
+    }
+
+    private long streamObject(String objectId) {
+        var buffer = new byte[BUFFER_SIZE];
+        var bytes = 0L;
+        var object = repo.getObject(ObjectVersionId.head(objectId));
+        for (var file : object.getFiles()) {
+            try (var stream = file.getStream()) {
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    bytes += read;
+                }
+                stream.checkFixity();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
+        }
+        return bytes;
+    }
+
+    private static VersionInfo newVersionInfo(String message) {
+        return new VersionInfo().setUser("Peter", "pwinckles@example.com").setMessage(message);
+    }
+
+    private void getFuture(Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to seed object", e);
+        }
+    }
+
+    private static class OperationStats {
+        private final Histogram histogram = new ConcurrentHistogram(3);
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder lockTimeouts = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+
+        void reset() {
+            histogram.reset();
+            retries.reset();
+            conflicts.reset();
+            lockTimeouts.reset();
+            failures.reset();
+        }
+
+        OperationResults results() {
+            return new OperationResults(histogram, retries.sum(), conflicts.sum(), lockTimeouts.sum(), failures.sum());
+        }
+    }
+
+    /**
+     * Objects ranked by popularity. Created objects are appended as the least popular.
+     */
+    private static class Population {
+        private final String prefix = "mixed-" + UUID.randomUUID() + "-";
+        private final double zipfExponent;
+        private final List<String> ids = new ArrayList<>();
+        private ZipfSampler sampler;
+
+        Population(double zipfExponent) {
+            this.zipfExponent = zipfExponent;
+        }
+
+        String prefix() {
+            return prefix;
+        }
+
+        synchronized void add(String objectId) {
+            ids.add(objectId);
+        }
+
+        synchronized String sample(SplittableRandom random) {
+            if (sampler == null || sampler.n() != ids.size()) {
+                sampler = new ZipfSampler(ids.size(), zipfExponent);
+            }
+            return ids.get((int) sampler.sample(random) - 1);
+        }
+
+        synchronized int size() {
+            return ids.size();
+        }
+
+        synchronized List<String> ids() {
+            return List.copyOf(ids);
+        }
+    }
+}
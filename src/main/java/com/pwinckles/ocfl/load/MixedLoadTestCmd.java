@@ -0,0 +1,246 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.core.lock.ObjectLockBuilder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+@CommandLine.Command(
+        name = "mixed-test",
+        description =
+                """
+                Seeds the OCFL repository with a population of test objects with characteristics that meet a \
+                supplied specification, and then runs a weighted mix of creates, updates, reads, describes, and \
+                version listings against it as many times as possible. Objects are chosen with a Zipf \
+                distribution, so that concurrent updates contend for the most popular objects. Time spent \
+                waiting for object locks, and updates that conflict or time out, are reported separately.
+
+                When S3 options are specified, the OCFL repository is created in S3. When --s3-local is \
+                specified, it's created in an S3-compatible endpoint that's started in-process and stores \
+                objects on the local filesystem. Otherwise, it's created in a directory on the local filesystem.""",
+        mixinStandardHelpOptions = true)
+public class MixedLoadTestCmd implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(MixedLoadTestCmd.class);
+
+    @CommandLine.Option(
+            names = "--objects",
+            description = "The number of objects to seed the repository with before running operations.",
+            required = true)
+    private int objectCount;
+
+    @CommandLine.Option(
+            names = "--iterations",
+            description = "The number of operations to run in each thread.",
+            required = true)
+    private long iterations;
+
+    @CommandLine.Option(
+            names = "--warmup",
+            description = "The number of operations to run in each thread as a warmup.",
+            required = true)
+    private long warmupIterations;
+
+    @CommandLine.Option(names = "--threads", description = "The number of threads to run the test on.", required = true)
+    private int threadCount;
+
+    @CommandLine.Option(
+            names = "--mix",
+            split = ",",
+            description = "The relative weight of each operation, as comma separated OPERATION=WEIGHT pairs."
+                    + " Operations that are left out aren't run. Valid operations: create, update, read, describe,"
+                    + " list-versions.",
+            defaultValue = "create=5,update=20,read=50,describe=15,list-versions=10",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private Map<String, Integer> mix;
+
+    @CommandLine.Option(
+            names = "--zipf-exponent",
+            description = "The exponent of the Zipf distribution objects are chosen with. 0 chooses objects"
+                    + " uniformly, and larger values concentrate operations on fewer objects.",
+            defaultValue = "0.99",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private double zipfExponent;
+
+    @CommandLine.Option(
+            names = "--max-retries",
+            description = "The number of times an operation is retried when it conflicts with a concurrent update"
+                    + " or times out waiting for an object lock.",
+            defaultValue = "3",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int maxRetries;
+
+    @CommandLine.Option(
+            names = "--lock-wait",
+            description =
+                    "How long a write waits to acquire an object lock before timing out, as an ISO-8601 duration.",
+            defaultValue = "PT10S",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private Duration lockWait;
+
+    @CommandLine.Option(
+            names = "--temp",
+            description = "The directory to use to write files before they're inserted into the repository.",
+            required = true)
+    private Path tempDir;
+
+    @CommandLine.ArgGroup(multiplicity = "1")
+    private StorageOptions storageOptions;
+
+    @CommandLine.Mixin
+    private FileSpecOptions fileSpecOptions;
+
+    @CommandLine.Mixin
+    private RepoOptions repoOptions;
+
+    @CommandLine.Mixin
+    private ReportOptions reportOptions;
+
+    @CommandLine.Mixin
+    private S3TuningOptions s3TuningOptions;
+
+    @Override
+    public void run() {
+        log.info("Running mixed load test with config: {}", this);
+
+        try {
+            Files.createDirectories(tempDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+
+        if (s3TuningOptions.isSet() && !storageOptions.isS3()) {
+            throw new IllegalArgumentException("S3 client tuning options only apply to S3 storage.");
+        }
+        if (lockWait.isNegative() || lockWait.isZero()) {
+            throw new IllegalArgumentException("Lock wait must be greater than 0.");
+        }
+        var tuning = s3TuningOptions.single();
+        var weights = parseMix();
+
+        var inventoryCache = repoOptions.buildInventoryCache(storageOptions.isS3());
+        var repoSettings = repoOptions.buildRepoSettings();
+        var objectLock = new TimedObjectLock(new ObjectLockBuilder()
+                .waitTime(lockWait.toMillis(), TimeUnit.MILLISECONDS)
+                .build());
+        var repo = storageOptions.buildRepo(
+                tempDir, tuning, new RepoConfig(repoSettings, inventoryCache, null, objectLock));
+        var objectFiles = fileSpecOptions.sampleObjectFiles();
+        log.info("Test objects: {}", FileSpec.summary(objectFiles));
+
+        var loadTest = new MixedLoadTest(
+                repo,
+                tempDir,
+                objectCount,
+                iterations,
+                warmupIterations,
+                threadCount,
+                weights,
+                zipfExponent,
+                maxRetries,
+                objectFiles,
+                fileSpecOptions.seed(),
+                fileSpecOptions.compressibility(),
+                objectLock,
+                inventoryCache,
+                reportOptions.newIntervalRecorder("mixed"),
+                reportOptions.newResourceSampler("resources"));
+
+        try {
+            var results = loadTest.run();
+
+            storageOptions.cleanup(tempDir);
+
+            var totals = results.totals();
+            log.info(
+                    "Throughput: {} ops/s {} MB/s. Output in milliseconds:\n{}",
+                    String.format(
+                            "%.3f",
+                            totals.histogram().getTotalCount()
+                                    / (totals.duration().toNanos() / 1e9)),
+                    String.format("%.2f", Histograms.mbPerSecond(totals.bytes(), totals.duration())),
+                    Histograms.toMillis(totals.histogram()));
+
+            var operationSummary = new StringBuilder();
+            for (var entry : results.operations().entrySet()) {
+                var operation = entry.getValue();
+                operationSummary
+                        .append(String.format("%-16s", entry.getKey()))
+                        .append(Histograms.summary(operation.histogram()))
+                        .append(String.format(
+                                " retries=%d conflicts=%d lockTimeouts=%d failures=%d",
+                                operation.retries(),
+                                operation.conflicts(),
+                                operation.lockTimeouts(),
+                                operation.failures()))
+                        .append("\n");
+            }
+            log.info(
+                    "Latency by operation in milliseconds, including retries. Objects in population: {}\n{}",
+                    results.populationSize(),
+                    operationSummary);
+
+            log.info(
+                    "Object lock wait in milliseconds: {}. Lock timeouts: {}",
+                    Histograms.summary(results.lockWaitHistogram()),
+                    results.lockTimeouts());
+
+            log.info("Resources during measurement: {}", results.resources().summary());
+
+            if (storageOptions.isS3()) {
+                log.info("S3 client: {}", tuning.effective());
+            }
+
+            log.info("Repository: {}", repoSettings.effective());
+
+            log.info("Inventory cache:\n{}", inventoryCache.report());
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Load test was interrupted.", e);
+        } finally {
+            repo.close();
+            storageOptions.close();
+        }
+    }
+
+    private Map<MixedLoadTest.Operation, Integer> parseMix() {
+        var weights = new EnumMap<MixedLoadTest.Operation, Integer>(MixedLoadTest.Operation.class);
+        mix.forEach((name, weight) -> {
+            try {
+                weights.put(
+                        MixedLoadTest.Operation.valueOf(
+                                name.trim().toUpperCase().replace('-', '_')),
+                        weight);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown operation in --mix: " + name, e);
+            }
+        });
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return "MixedLoadTestCmd{" + "objectCount="
+                + objectCount + ", iterations="
+                + iterations + ", warmupIterations="
+                + warmupIterations + ", threadCount="
+                + threadCount + ", mix="
+                + mix + ", zipfExponent="
+                + zipfExponent + ", maxRetries="
+                + maxRetries + ", lockWait="
+                + lockWait + ", tempDir="
+                + tempDir + ", storageOptions="
+                + storageOptions + ", fileSpecOptions="
+                + fileSpecOptions + ", repoOptions="
+                + repoOptions + ", reportOptions="
+                + reportOptions + ", s3TuningOptions="
+                + s3TuningOptions + '}';
+    }
+}
@@ -1,5 +1,6 @@
 package com.pwinckles.ocfl.load;
 
+import io.ocfl.api.OcflOption;
 import io.ocfl.api.OcflRepository;
 import io.ocfl.api.model.ObjectVersionId;
 import io.ocfl.api.model.VersionInfo;
@@ -11,14 +12,27 @@ import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Random;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import org.HdrHistogram.ConcurrentHistogram;
 import org.HdrHistogram.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,101 +41,430 @@ public class NewObjectLoadTest {
 
     private static final Logger log = LoggerFactory.getLogger(NewObjectLoadTest.class);
 
+    public enum ContentSource {
+        FIXTURE,
+        STREAM,
+        MOVE
+    }
+
+    private static final String CLONES_DIR = "clones";
+
     private final OcflRepository repo;
     private final long iterations;
     private final long warmupIterations;
     private final int threadCount;
     private final int processingThreadCount;
-    private final Map<Long, Integer> fileSpec;
-
-    private final ObjectGenerator objectGenerator;
-
-    public NewObjectLoadTest(
-            OcflRepository repo,
-            Path tempDir,
+    private final ThreadMode threadMode;
+    private final Map<String, FileSpec.ObjectFile> objectFiles;
+    private final double compressibility;
+    private final double versionDuplicateFraction;
+    private final ContentSource contentSource;
+    private final long seed;
+    private final int versions;
+    private final double changeFraction;
+    private final StageRecorder stageRecorder;
+    private final MeteredCache<?, ?> inventoryCache;
+    private final PrefixDistribution prefixDistribution;
+    private final IntervalRecorder intervalRecorder;
+    private final ResourceSampler resourceSampler;
+    private final Purger purger;
+    private final ArrivalSchedule arrivalSchedule;
+    private final IntervalRecorder serviceRecorder;
+    private final ClusterWorker clusterWorker;
+    private final long objectSize;
+    private final long uniqueObjectSize;
+    private final LongAdder storedBytes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final List<Histogram> versionHistograms;
+
+    private final Path tempDir;
+    private final FixturePool fixturePool;
+    private final CloneMode cloneMode;
+    private final Histogram cloneHistogram = new ConcurrentHistogram(3);
+
+    public record Results(
+            IntervalRecorder.Totals totals,
+            List<Histogram> versionHistograms,
+            IntervalRecorder.Totals purgeTotals,
+            IntervalRecorder.Totals serviceTotals,
+            long storedBytes,
+            Histogram cloneHistogram,
+            ResourceSampler.Totals resources,
+            long failures) {}
+
+    private record Update(long bytes, long storedBytes) {}
+
+    private record Fixture(Path path, Map<String, FileSpec.ObjectFile> files) {}
+
+    /**
+     * Writes are dispatched on the arrival schedule when there is one, and otherwise as fast as possible.
+     */
+    public record LoadSettings(
             long iterations,
             long warmupIterations,
             int threadCount,
             int processingThreadCount,
-            Map<Long, Integer> fileSpec) {
-        if (iterations < 1) {
-            throw new IllegalArgumentException("Iterations must be 1 or more.");
+            ThreadMode threadMode,
+            ArrivalSchedule arrivalSchedule) {
+
+        public LoadSettings {
+            if (iterations < 1) {
+                throw new IllegalArgumentException("Iterations must be 1 or more.");
+            }
+            if (warmupIterations < 1) {
+                throw new IllegalArgumentException("Warmup iterations must be 1 or more.");
+            }
+            if (threadCount < 1) {
+                throw new IllegalArgumentException("Thread count must be 1 or more.");
+            }
+            if (processingThreadCount < 1) {
+                throw new IllegalArgumentException("Processing thread count must be 1 or more.");
+            }
+            Objects.requireNonNull(threadMode, "threadMode cannot be null");
         }
-        if (warmupIterations < 1) {
-            throw new IllegalArgumentException("Warmup iterations must be 1 or more.");
+    }
+
+    /**
+     * The clone mode is only used when content is moved.
+     */
+    public record ContentSettings(
+            Map<String, FileSpec.ObjectFile> objectFiles,
+            ContentSource contentSource,
+            long seed,
+            double compressibility,
+            FixturePool fixturePool,
+            CloneMode cloneMode) {
+
+        public ContentSettings {
+            if (objectFiles == null || objectFiles.isEmpty()) {
+                throw new IllegalArgumentException("File spec must contain 1 or more files.");
+            }
+            Objects.requireNonNull(contentSource, "contentSource cannot be null");
+            Objects.requireNonNull(fixturePool, "fixturePool cannot be null");
+            if (contentSource == ContentSource.MOVE && cloneMode == null) {
+                throw new IllegalArgumentException("A clone mode is required when content is moved.");
+            }
         }
-        if (threadCount < 1) {
-            throw new IllegalArgumentException("Thread count must be 1 or more.");
+    }
+
+    public record VersionSettings(int versions, double changeFraction, double duplicateFraction) {
+
+        public VersionSettings {
+            if (versions < 1) {
+                throw new IllegalArgumentException("Versions must be 1 or more.");
+            }
+            if (changeFraction <= 0 || changeFraction > 1) {
+                throw new IllegalArgumentException(
+                        "Change fraction must be greater than 0 and less than or equal to 1.");
+            }
+            if (duplicateFraction < 0 || duplicateFraction > 1) {
+                throw new IllegalArgumentException("Version duplicate fraction must be between 0 and 1.");
+            }
         }
-        if (processingThreadCount < 1) {
-            throw new IllegalArgumentException("Processing thread count must be 1 or more.");
+    }
+
+    /**
+     * The stage recorder may be null.
+     */
+    public record Recorders(
+            IntervalRecorder intervalRecorder,
+            IntervalRecorder serviceRecorder,
+            ResourceSampler resourceSampler,
+            StageRecorder stageRecorder,
+            MeteredCache<?, ?> inventoryCache,
+            PrefixDistribution prefixDistribution) {
+
+        public Recorders {
+            Objects.requireNonNull(intervalRecorder, "intervalRecorder cannot be null");
+            Objects.requireNonNull(resourceSampler, "resourceSampler cannot be null");
+            Objects.requireNonNull(inventoryCache, "inventoryCache cannot be null");
+            Objects.requireNonNull(prefixDistribution, "prefixDistribution cannot be null");
         }
-        if (fileSpec == null || fileSpec.isEmpty()) {
-            throw new IllegalArgumentException("File spec must contain 1 or more files.");
+    }
+
+    public NewObjectLoadTest(
+            OcflRepository repo,
+            Path tempDir,
+            LoadSettings load,
+            ContentSettings content,
+            VersionSettings versionSettings,
+            Recorders recorders,
+            Purger purger,
+            ClusterWorker clusterWorker) {
+        if (load.arrivalSchedule() != null && recorders.serviceRecorder() == null) {
+            throw new IllegalArgumentException("A service time recorder is required when an arrival schedule is set.");
         }
 
         this.repo = Objects.requireNonNull(repo);
-        this.iterations = iterations;
-        this.warmupIterations = warmupIterations;
-        this.threadCount = threadCount;
-        this.processingThreadCount = processingThreadCount;
-        this.fileSpec = fileSpec;
+        this.iterations = load.iterations();
+        this.warmupIterations = load.warmupIterations();
+        this.threadCount = load.threadCount();
+        this.processingThreadCount = load.processingThreadCount();
+        this.threadMode = load.threadMode();
+        this.arrivalSchedule = load.arrivalSchedule();
+        this.objectFiles = content.objectFiles();
+        this.contentSource = content.contentSource();
+        this.seed = content.seed();
+        this.compressibility = content.compressibility();
+        this.fixturePool = content.fixturePool();
+        this.cloneMode = content.cloneMode();
+        this.versions = versionSettings.versions();
+        this.changeFraction = versionSettings.changeFraction();
+        this.versionDuplicateFraction = versionSettings.duplicateFraction();
+        this.intervalRecorder = recorders.intervalRecorder();
+        this.serviceRecorder = arrivalSchedule == null ? null : recorders.serviceRecorder();
+        this.resourceSampler = recorders.resourceSampler();
+        this.stageRecorder = recorders.stageRecorder();
+        this.inventoryCache = recorders.inventoryCache();
+        this.prefixDistribution = recorders.prefixDistribution();
+        this.purger = Objects.requireNonNull(purger);
+        this.clusterWorker = clusterWorker;
+        this.objectSize = objectFiles.values().stream()
+                .mapToLong(FileSpec.ObjectFile::size)
+                .sum();
+        this.uniqueObjectSize = FileSpec.uniqueBytes(objectFiles);
+        this.versionHistograms = new ArrayList<>(versions);
+        for (var i = 0; i < versions; i++) {
+            versionHistograms.add(new ConcurrentHistogram(3));
+        }
 
-        this.objectGenerator = new ObjectGenerator(tempDir);
+        this.tempDir = Objects.requireNonNull(tempDir);
     }
 
-    public Histogram run() throws InterruptedException {
+    public Results run() throws InterruptedException {
+        if (clusterWorker != null) {
+            clusterWorker.awaitStart();
+        }
+
         log.info("Starting load test");
 
-        var histogram = new Histogram(3);
+        intervalRecorder.start();
+        resourceSampler.start();
+        if (serviceRecorder != null) {
+            serviceRecorder.start();
+        }
+        purger.start();
+
+        IntervalRecorder.Totals totals;
+        ResourceSampler.Totals resources;
+        IntervalRecorder.Totals serviceTotals;
+        IntervalRecorder.Totals purgeTotals;
+        try {
+            runWriters();
+        } finally {
+            try {
+                totals = intervalRecorder.stop();
+                resources = resourceSampler.stop();
+                serviceTotals = serviceRecorder == null ? null : serviceRecorder.stop();
+            } finally {
+                purgeTotals = purger.finish();
+            }
+        }
+
+        log.info("Load test complete");
+        return new Results(
+                totals,
+                versionHistograms,
+                purgeTotals,
+                serviceTotals,
+                storedBytes.sum(),
+                cloneHistogram,
+                resources,
+                failures.sum());
+    }
+
+    private void runWriters() throws InterruptedException {
+        ExecutorService processingExecutor = null;
+        if (processingThreadCount > 1) {
+            processingExecutor = threadMode.newProcessingExecutor(threadCount * processingThreadCount);
+        }
+
+        try {
+            if (contentSource == ContentSource.MOVE) {
+                Files.createDirectories(tempDir.resolve(CLONES_DIR));
+            }
+            if (arrivalSchedule == null) {
+                runClosedLoop(processingExecutor);
+            } else {
+                runOpenLoop(processingExecutor);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        } finally {
+            if (processingExecutor != null) {
+                processingExecutor.shutdownNow();
+            }
+            if (contentSource == ContentSource.MOVE) {
+                FileUtil.safeDeleteDirectory(tempDir.resolve(CLONES_DIR));
+            }
+        }
+    }
+
+    private void runClosedLoop(ExecutorService processingExecutor) throws InterruptedException {
         var threads = new ArrayList<Thread>(threadCount);
         var phaser = new Phaser(threadCount + 1);
+        var threadFactory = threadMode.threadFactory("writer-");
 
         for (var i = 0; i < threadCount; i++) {
-            threads.add(createThread(histogram, phaser));
+            threads.add(threadFactory.newThread(createWriter(phaser, processingExecutor)));
         }
 
         startThreads(threads);
 
         phaser.arriveAndAwaitAdvance();
-        histogram.reset();
+        startMeasuring();
         phaser.arriveAndAwaitAdvance();
 
         joinThreads(threads);
+    }
 
-        log.info("Load test complete");
-        return histogram;
+    /**
+     * Latency is measured from a write's intended start, so any time it spends queued for a worker is included.
+     */
+    private void runOpenLoop(ExecutorService processingExecutor) throws InterruptedException {
+        var fixtures = new ArrayList<Fixture>(threadCount);
+        ExecutorService workers = null;
+
+        try {
+            log.info("Generating {} test objects", threadCount);
+            for (var i = 0; i < threadCount; i++) {
+                fixtures.add(generateFixture());
+            }
+            var unassigned = new ConcurrentLinkedQueue<>(fixtures);
+            var workerFixture = ThreadLocal.withInitial(unassigned::poll);
+
+            workers = Executors.newFixedThreadPool(threadCount, threadMode.threadFactory("worker-"));
+
+            var versionInfo = newVersionInfo();
+            var runId = UUID.randomUUID().toString();
+
+            log.info("Running warmup for {} operations at {}", warmupIterations * threadCount, arrivalSchedule);
+            dispatch(
+                    workers,
+                    processingExecutor,
+                    workerFixture,
+                    runId + "-warmup",
+                    warmupIterations * threadCount,
+                    versionInfo);
+
+            startMeasuring();
+
+            log.info("Running load test for {} operations at {}", iterations * threadCount, arrivalSchedule);
+            dispatch(workers, processingExecutor, workerFixture, runId, iterations * threadCount, versionInfo);
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+            fixtures.forEach(this::releaseFixture);
+        }
+    }
+
+    /**
+     * The schedule starts over every time this is called.
+     */
+    private void dispatch(
+            ExecutorService workers,
+            ExecutorService processingExecutor,
+            ThreadLocal<Fixture> workerFixture,
+            String idPrefix,
+            long count,
+            VersionInfo versionInfo)
+            throws InterruptedException {
+        // CountDownLatch only counts to Integer.MAX_VALUE, so completions are counted separately
+        var remaining = new AtomicLong(count);
+        var done = new CountDownLatch(count == 0 ? 0 : 1);
+        var scheduleStart = System.nanoTime();
+        var intendedStart = scheduleStart;
+        var lastLog = scheduleStart;
+
+        for (long i = 0; i < count; i++) {
+            waitUntil(intendedStart);
+
+            if (intendedStart - lastLog >= TimeUnit.MINUTES.toNanos(1)) {
+                lastLog = intendedStart;
+                log.info(
+                        "Dispatched {} of {} operations. {} operations in flight.",
+                        i,
+                        count,
+                        i - (count - remaining.get()));
+            }
+
+            var objectId = idPrefix + "-" + i;
+            var start = intendedStart;
+            var expectedInterval = arrivalSchedule.intervalNanos(intendedStart - scheduleStart);
+
+            workers.execute(() -> {
+                try {
+                    writeAndPurge(
+                            processingExecutor, objectId, workerFixture.get(), versionInfo, start, expectedInterval);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    log.error("Exception writing object {}", objectId, e);
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        done.countDown();
+                    }
+                }
+            });
+
+            intendedStart += expectedInterval;
+        }
+
+        done.await();
+        log.info("Run completed in {}", Duration.ofNanos(System.nanoTime() - scheduleStart));
     }
 
-    private Thread createThread(Histogram histogram, Phaser phaser) {
-        return new Thread() {
+    /**
+     * In a distributed test, waits for every other worker's warmup too.
+     */
+    private void startMeasuring() throws InterruptedException {
+        purger.drain();
+        if (clusterWorker != null) {
+            clusterWorker.awaitMeasure();
+        }
+        prefixDistribution.reset();
+        inventoryCache.reset();
+        intervalRecorder.startMeasuring();
+        resourceSampler.startMeasuring();
+        if (serviceRecorder != null) {
+            serviceRecorder.startMeasuring();
+        }
+        purger.startMeasuring();
+        versionHistograms.forEach(Histogram::reset);
+        cloneHistogram.reset();
+        storedBytes.reset();
+        failures.reset();
+        if (stageRecorder != null) {
+            stageRecorder.reset();
+        }
+    }
+
+    private Runnable createWriter(Phaser phaser, ExecutorService executor) {
+        return new Runnable() {
             private final String id = UUID.randomUUID().toString();
 
             @Override
             public void run() {
-                setName(id);
+                Thread.currentThread().setName(id);
                 log.info("Starting thread {}", id);
 
-                Path objectPath = null;
+                Fixture fixture = null;
 
                 try {
-                    log.info("Generating test object");
-                    objectPath = objectGenerator.generate(fileSpec);
-                    log.info("Generated test object: {}", objectPath);
+                    fixture = generateFixture();
 
-                    var versionInfo = new VersionInfo()
-                            .setUser("Peter", "pwinckles@example.com")
-                            .setMessage("Testing");
+                    var versionInfo = newVersionInfo();
 
                     log.info("Running warmup for {} iterations", warmupIterations);
-                    runInner(objectPath, versionInfo, warmupIterations);
+                    runInner(fixture, versionInfo, id + "-warmup", warmupIterations);
 
                     log.info("Warmup complete. Waiting for other threads to finish.");
                     phaser.arriveAndAwaitAdvance();
                     phaser.arriveAndAwaitAdvance();
 
                     log.info("Running load test for {} iterations", iterations);
-                    runInner(objectPath, versionInfo, iterations);
+                    runInner(fixture, versionInfo, id, iterations);
 
                     log.info("Completed test in thread {}", id);
                 } catch (InterruptedException e) {
@@ -129,20 +472,14 @@ public class NewObjectLoadTest {
                 } catch (RuntimeException e) {
                     log.error("Error running test. Thread exiting.", e);
                 } finally {
-                    if (objectPath != null) {
-                        FileUtil.safeDeleteDirectory(objectPath);
+                    if (fixture != null) {
+                        releaseFixture(fixture);
                     }
                 }
             }
 
-            private void runInner(Path objectPath, VersionInfo versionInfo, long iterations)
+            private void runInner(Fixture fixture, VersionInfo versionInfo, String idPrefix, long iterations)
                     throws InterruptedException {
-                ExecutorService executor;
-                if (processingThreadCount > 1) {
-                    executor = Executors.newWorkStealingPool(processingThreadCount);
-                } else {
-                    executor = null;
-                }
                 var runStart = Instant.now();
                 var lastLog = runStart;
 
@@ -159,54 +496,290 @@ public class NewObjectLoadTest {
                         log.info("Thread has created {} objects in {}", i, Duration.between(runStart, now));
                     }
 
-                    var objectId = id + "-" + i;
+                    var objectId = idPrefix + "-" + i;
                     try {
-                        var opStart = System.nanoTime();
-                        try {
-                            if (executor != null) {
-                                repo.updateObject(ObjectVersionId.head(objectId), versionInfo, updater -> {
-                                    List<? extends Future<?>> futures;
-                                    try (var files = Files.find(
-                                            objectPath, Integer.MAX_VALUE, (file, attrs) -> attrs.isRegularFile())) {
-                                        futures = files.map(file -> executor.submit(() -> {
-                                                    var logical = objectPath
-                                                            .relativize(file)
-                                                            .toString();
-                                                    updater.addPath(file, logical);
-                                                }))
-                                                .toList();
-                                    } catch (IOException e) {
-                                        throw new UncheckedIOException(e);
-                                    }
-                                    futures.forEach(future -> {
-                                        try {
-                                            future.get();
-                                        } catch (Exception e) {
-                                            throw new RuntimeException("Error adding file to object " + objectId, e);
-                                        }
-                                    });
-                                });
-                            } else {
-                                repo.putObject(ObjectVersionId.head(objectId), objectPath, versionInfo);
-                            }
-                        } finally {
-                            var end = System.nanoTime();
-                            histogram.recordValue(end - opStart);
-                        }
-                        repo.purgeObject(objectId);
+                        writeAndPurge(executor, objectId, fixture, versionInfo, System.nanoTime(), 0);
                     } catch (RuntimeException e) {
                         log.error("Exception in thread: {}", id, e);
                     }
                 }
 
                 log.info("Run completed in {}", Duration.between(runStart, Instant.now()));
-                if (executor != null) {
-                    executor.shutdownNow();
-                }
             }
         };
     }
 
+    /**
+     * When content is moved, the clone is made before the write's latency is measured.
+     */
+    private void writeAndPurge(
+            ExecutorService executor,
+            String objectId,
+            Fixture fixture,
+            VersionInfo versionInfo,
+            long intendedStart,
+            long expectedIntervalNanos)
+            throws InterruptedException {
+        prefixDistribution.record(objectId);
+        var source = contentSource == ContentSource.MOVE ? cloneFixture(fixture) : fixture;
+        var opStart = System.nanoTime();
+        if (source != fixture && arrivalSchedule == null) {
+            // In closed-loop mode, a write is intended to start when it actually starts, after its clone is made
+            intendedStart = opStart;
+        }
+        try {
+            writeObject(executor, objectId, source, versionInfo);
+            record(1, intendedStart, opStart, new Update(objectSize, uniqueObjectSize), expectedIntervalNanos);
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            if (source != fixture) {
+                FileUtil.safeDeleteDirectory(source.path());
+            }
+        }
+
+        try {
+            for (int v = 2; v <= versions; v++) {
+                var versionStart = System.nanoTime();
+                var update = updateObject(objectId, fixture, versionInfo, v);
+                // Updates aren't dispatched on the arrival schedule, so there's no coordinated omission to correct
+                record(v, versionStart, versionStart, update, 0);
+            }
+        } catch (RuntimeException e) {
+            failures.increment();
+            purger.purge(objectId);
+            throw e;
+        }
+
+        purger.purge(objectId);
+    }
+
+    private void writeObject(ExecutorService executor, String objectId, Fixture fixture, VersionInfo versionInfo) {
+        var objectPath = fixture.path();
+        if (stageRecorder != null) {
+            stageRecorder.start();
+        }
+        try {
+            if (contentSource == ContentSource.STREAM) {
+                writeStreamedObject(executor, objectId, fixture.files(), versionInfo);
+            } else if (executor != null) {
+                repo.updateObject(ObjectVersionId.head(objectId), versionInfo, updater -> {
+                    timeStaging(() -> addFiles(
+                            executor,
+                            objectId,
+                            objectPath,
+                            (file, logical) -> updater.addPath(file, logical, addOptions())));
+                });
+            } else {
+                var start = System.nanoTime();
+                repo.putObject(ObjectVersionId.head(objectId), objectPath, versionInfo, addOptions());
+                if (stageRecorder != null) {
+                    // putObject doesn't expose its staging, so it's the time that's not in any other stage
+                    stageRecorder.add(
+                            StageRecorder.Stage.STAGING_COPY,
+                            System.nanoTime() - start - stageRecorder.recorded());
+                }
+            }
+        } finally {
+            if (stageRecorder != null) {
+                stageRecorder.finish();
+            }
+        }
+    }
+
+    /**
+     * The digest is calculated as the stream is copied, so it's recorded as staging.
+     */
+    private void writeStreamedObject(
+            ExecutorService executor,
+            String objectId,
+            Map<String, FileSpec.ObjectFile> objectFiles,
+            VersionInfo versionInfo) {
+        repo.updateObject(ObjectVersionId.head(objectId), versionInfo, updater -> {
+            timeStaging(() -> forEach(executor, objectId, List.copyOf(objectFiles.keySet()), logicalPath -> {
+                updater.writeFile(originalContent(objectId, objectFiles.get(logicalPath)), logicalPath);
+            }));
+        });
+    }
+
+    /**
+     * Staging is timed from start to end, rather than summed per file, so that it's comparable to the total.
+     */
+    private void timeStaging(Runnable staging) {
+        if (stageRecorder == null) {
+            staging.run();
+            return;
+        }
+        var start = System.nanoTime();
+        try {
+            staging.run();
+        } finally {
+            stageRecorder.add(StageRecorder.Stage.STAGING_COPY, System.nanoTime() - start);
+        }
+    }
+
+    private void addFiles(
+            ExecutorService executor, String objectId, Path objectPath, BiConsumer<Path, String> consumer) {
+        forEach(
+                executor,
+                objectId,
+                findFiles(objectPath),
+                file -> consumer.accept(file, logicalPath(objectPath, file)));
+    }
+
+    static List<Path> findFiles(Path objectPath) {
+        try (var stream = Files.find(objectPath, Integer.MAX_VALUE, (file, attrs) -> attrs.isRegularFile())) {
+            return stream.toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String logicalPath(Path objectPath, Path file) {
+        return FileUtil.pathToStringStandardSeparator(objectPath.relativize(file));
+    }
+
+    /**
+     * The bound is per object, rather than the executor's size, so that the executor can be shared.
+     */
+    private <T> void forEach(ExecutorService executor, String objectId, List<T> items, Consumer<T> consumer) {
+        if (executor == null) {
+            items.forEach(consumer);
+            return;
+        }
+
+        var permits = new Semaphore(processingThreadCount);
+        var futures = new ArrayList<Future<?>>(items.size());
+        try {
+            for (var item : items) {
+                permits.acquire();
+                try {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            consumer.accept(item);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted adding files to object " + objectId, e);
+        }
+
+        futures.forEach(future -> {
+            try {
+                future.get();
+            } catch (Exception e) {
+                throw new RuntimeException("Error adding file to object " + objectId, e);
+            }
+        });
+    }
+
+    /**
+     * A fraction of the selected files are overwritten with content that OCFL deduplicates.
+     */
+    private Update updateObject(String objectId, Fixture fixture, VersionInfo versionInfo, int versionNum) {
+        var objectFiles = fixture.files();
+        var paths = new ArrayList<>(new TreeSet<>(objectFiles.keySet()));
+        var random = new Random(contentSeed(objectId, "", versionNum));
+        Collections.shuffle(paths, random);
+        var changeCount = Math.max(1, (int) Math.round(paths.size() * changeFraction));
+        var changed = List.copyOf(paths.subList(0, changeCount));
+        var bytes = new long[2];
+
+        repo.updateObject(ObjectVersionId.head(objectId), versionInfo, updater -> {
+            for (var path : changed) {
+                if (paths.size() > 1 && random.nextDouble() < versionDuplicateFraction) {
+                    var other = paths.get(random.nextInt(paths.size()));
+                    while (other.equals(path)) {
+                        other = paths.get(random.nextInt(paths.size()));
+                    }
+                    var otherFile = objectFiles.get(other);
+                    if (contentSource == ContentSource.STREAM) {
+                        updater.writeFile(originalContent(objectId, otherFile), path, OcflOption.OVERWRITE);
+                    } else {
+                        updater.addPath(fixture.path().resolve(other), path, OcflOption.OVERWRITE);
+                    }
+                    bytes[0] += otherFile.size();
+                } else {
+                    var size = objectFiles.get(path).size();
+                    updater.writeFile(
+                            new RandomInputStream(size, contentSeed(objectId, path, versionNum), compressibility),
+                            path,
+                            OcflOption.OVERWRITE);
+                    bytes[0] += size;
+                    bytes[1] += size;
+                }
+            }
+        });
+
+        return new Update(bytes[0], bytes[1]);
+    }
+
+    private RandomInputStream originalContent(String objectId, FileSpec.ObjectFile file) {
+        return new RandomInputStream(file.size(), contentSeed(objectId, file.contentId(), 1), compressibility);
+    }
+
+    private void record(int versionNum, long intendedStart, long start, Update update, long expectedIntervalNanos) {
+        var end = System.nanoTime();
+        intervalRecorder.record(end - intendedStart, update.bytes());
+        versionHistograms.get(versionNum - 1).recordValue(end - intendedStart);
+        storedBytes.add(update.storedBytes());
+        if (serviceRecorder != null) {
+            serviceRecorder.record(end - start, update.bytes(), expectedIntervalNanos);
+        }
+    }
+
+    private long contentSeed(String objectId, String logicalPath, int versionNum) {
+        return ((seed * 31 + objectId.hashCode()) * 31 + logicalPath.hashCode()) * 31 + versionNum;
+    }
+
+    private OcflOption[] addOptions() {
+        return contentSource == ContentSource.MOVE ? new OcflOption[] {OcflOption.MOVE_SOURCE} : new OcflOption[0];
+    }
+
+    private Fixture cloneFixture(Fixture fixture) {
+        var start = System.nanoTime();
+        var clone = tempDir.resolve(CLONES_DIR).resolve(UUID.randomUUID().toString());
+        cloneMode.createClone(fixture.path(), clone);
+        cloneHistogram.recordValue(System.nanoTime() - start);
+        return new Fixture(clone, fixture.files());
+    }
+
+    private Fixture generateFixture() {
+        if (contentSource == ContentSource.STREAM) {
+            return new Fixture(null, objectFiles);
+        }
+
+        return new Fixture(fixturePool.acquire(tempDir, seed, compressibility, objectFiles), objectFiles);
+    }
+
+    private void releaseFixture(Fixture fixture) {
+        if (fixture.path() != null) {
+            fixturePool.release(fixture.path());
+        }
+    }
+
+    private VersionInfo newVersionInfo() {
+        return new VersionInfo().setUser("Peter", "pwinckles@example.com").setMessage("Testing");
+    }
+
+    private static void waitUntil(long nanoTime) throws InterruptedException {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
     private void startThreads(List<Thread> threads) {
         for (var thread : threads) {
             thread.start();
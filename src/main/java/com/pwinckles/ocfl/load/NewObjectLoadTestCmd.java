@@ -1,14 +1,13 @@
 package com.pwinckles.ocfl.load;
 
-import io.ocfl.api.OcflRepository;
-import io.ocfl.core.util.FileUtil;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
 import java.io.UncheckedIOException;
-import java.nio.charset.StandardCharsets;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,8 +20,12 @@ import picocli.CommandLine;
                 Generates a test object with characteristics that meet a supplied specification, \
                 and then writes that object to random IDs in the OCFL repository as many times as possible.
 
-                When S3 options are specified, the OCFL repository is created in S3. Otherwise, \
-                it's created in a directory on the local filesystem.""",
+                When S3 options are specified, the OCFL repository is created in S3. When --s3-local is \
+                specified, it's created in an S3-compatible endpoint that's started in-process and stores \
+                objects on the local filesystem. Otherwise, it's created in a directory on the local filesystem.
+
+                When more than one value is given for any of the S3 client tuning options, the test is run once \
+                for every combination of the values, and the combinations are ranked by MB/s and p99 latency.""",
         mixinStandardHelpOptions = true)
 public class NewObjectLoadTestCmd implements Runnable {
 
@@ -45,16 +48,120 @@ public class NewObjectLoadTestCmd implements Runnable {
 
     @CommandLine.Option(
             names = "--processing-threads",
-            description = "The number of threads to use to add files within a test thread.",
+            description = "The number of threads to use to add files within a test thread. Files are processed on a"
+                    + " pool that's shared by all test threads and sized to --threads times this value.",
             required = true)
     private int processingThreadCount;
 
     @CommandLine.Option(
-            names = "--files",
-            description = "A list of file size and file count pairs that describe the test object composition."
-                    + " For example, '10MB=2' means 2 10MB files. Valid units are B, KB, MB, and GB.",
-            required = true)
-    private Map<String, Integer> files;
+            names = "--thread-mode",
+            description = "The kind of threads to run test threads and per-file processing on. VIRTUAL requires"
+                    + " Java 21 or later. In both modes, no more than --processing-threads files are added to an"
+                    + " object at once. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "PLATFORM",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private ThreadMode threadMode;
+
+    @CommandLine.Option(
+            names = "--content",
+            description = "Where the content of the files that are written comes from. FIXTURE generates a test"
+                    + " object on disk for every thread before the run, and the repository reads it back on every"
+                    + " write. STREAM generates content on the fly from seeded pseudo-random streams, and writes"
+                    + " nothing to the temp directory. MOVE generates a test object like FIXTURE, clones it for"
+                    + " every write as described by --clone, and moves the clone's files into the repository instead"
+                    + " of copying them. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "FIXTURE",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private NewObjectLoadTest.ContentSource contentSource;
+
+    @CommandLine.Option(
+            names = "--clone",
+            description = "How test objects are cloned for every write with MOVE content. HARDLINK hard links every"
+                    + " file, and REFLINK makes copy-on-write reflinks with GNU cp, which requires a filesystem that"
+                    + " supports them. Cloning isn't included in write latency, except in --rate mode. The temp"
+                    + " directory should be on the same filesystem as the repository, or the move is a copy."
+                    + " Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "HARDLINK",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private CloneMode cloneMode;
+
+    @CommandLine.Option(
+            names = "--versions",
+            description = "The number of versions to write to each object before it's purged."
+                    + " Every version after the first changes a fraction of the object's files.",
+            defaultValue = "1",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int versions;
+
+    @CommandLine.Option(
+            names = "--change-fraction",
+            description = "The fraction of an object's files that are overwritten in each version after the first.",
+            defaultValue = "0.1",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private double changeFraction;
+
+    @CommandLine.Option(
+            names = "--version-duplicate-fraction",
+            description = "The fraction of the files that are changed in each version after the first that are"
+                    + " overwritten with content that's already in the object, rather than new content.",
+            defaultValue = "0",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private double versionDuplicateFraction;
+
+    @CommandLine.Option(
+            names = "--purge-mode",
+            description = "When written objects are purged. INLINE purges on the writing thread, ASYNC purges on a"
+                    + " dedicated pool, BATCH purges after all writes complete, and NONE never purges."
+                    + " Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "INLINE",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private Purger.Mode purgeMode;
+
+    @CommandLine.Option(
+            names = "--purge-threads",
+            description = "The number of threads to purge objects with in ASYNC and BATCH purge modes.",
+            defaultValue = "1",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int purgeThreads;
+
+    @CommandLine.Option(
+            names = "--purge-queue",
+            description = "The maximum number of purges that may be queued in ASYNC purge mode before writers block.",
+            defaultValue = "100",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int purgeQueue;
+
+    @CommandLine.Option(
+            names = "--stage-timings",
+            description = "Record how long each stage of writing a new object takes. Objects are written the same"
+                    + " way as without it. Digests are calculated while files are staged, so they're included in"
+                    + " staging time. With one processing thread and FIXTURE or MOVE content, staging time is the"
+                    + " time putObject spent outside the other stages.")
+    private boolean stageTimings;
+
+    @CommandLine.Option(
+            names = "--rate",
+            split = ",",
+            description = "Write objects at a fixed arrival rate instead of as fast as possible. Each write is"
+                    + " dispatched to a pool of --threads workers at its intended start time, and its latency is"
+                    + " measured from that time. A comma separated list of RATE[@DURATION] steps, where the rate is"
+                    + " per second, minute, or hour and the last step is held until the test completes. For example,"
+                    + " '0.5/s' or '0.1/s@PT5M,0.5/s@PT5M,1/s'. In this mode, --iterations and --warmup are"
+                    + " multiplied by --threads to get the total number of writes.")
+    private List<String> rate;
+
+    @CommandLine.Option(
+            names = "--coordinator",
+            description = "Run as a worker of a distributed test, coordinated by the coordinator command listening"
+                    + " at this HOST:PORT. The worker waits for the coordinator before starting, and before moving"
+                    + " from warmup to measuring, and streams its write intervals to it.")
+    private String coordinator;
+
+    @CommandLine.Option(
+            names = "--worker-name",
+            description = "The name the coordinator reports this worker's results under. Defaults to the host"
+                    + " name and process id.")
+    private String workerName;
 
     @CommandLine.Option(
             names = "--temp",
@@ -62,66 +169,30 @@ public class NewObjectLoadTestCmd implements Runnable {
             required = true)
     private Path tempDir;
 
-    @CommandLine.ArgGroup
+    @CommandLine.ArgGroup(multiplicity = "1")
     private StorageOptions storageOptions;
 
-    static class StorageOptions {
-        @CommandLine.Option(
-                names = "--dir",
-                description = "The path to the directory to create the OCFL repository in.")
-        private Path directory;
+    @CommandLine.Mixin
+    private FileSpecOptions fileSpecOptions;
 
-        @CommandLine.ArgGroup(exclusive = false)
-        private S3Options s3Options;
+    @CommandLine.Mixin
+    private RepoOptions repoOptions;
 
-        @Override
-        public String toString() {
-            return "StorageOptions{" + "directory=" + directory + ", s3Options=" + s3Options + '}';
-        }
-    }
+    @CommandLine.Mixin
+    private ReportOptions reportOptions;
 
-    static class S3Options {
-        @CommandLine.Option(names = "--s3-region", description = "The AWS region.", required = true)
-        private String s3Region;
-
-        @CommandLine.Option(
-                names = "--s3-bucket",
-                description = "The name of the S3 bucket to write to.",
-                required = true)
-        private String s3Bucket;
-
-        @CommandLine.Option(
-                names = "--s3-prefix",
-                description = "The prefix within the bucket to create the OCFL repo in.")
-        private String s3Prefix;
-
-        @CommandLine.Option(
-                names = "--s3-profile",
-                description = "The name of the profile to load the credentials from.",
-                showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
-        private String s3Profile;
-
-        @CommandLine.Option(
-                names = "--s3-endpoint",
-                description = "The S3 endpoint. This only needs to be specified when using a non-AWS endpoint.")
-        private String s3Endpoint;
-
-        @Override
-        public String toString() {
-            return "S3Options{" + "s3Region='"
-                    + s3Region + '\'' + ", s3Bucket='"
-                    + s3Bucket + '\'' + ", s3Prefix='"
-                    + s3Prefix + '\'' + ", s3Profile='"
-                    + s3Profile + '\'' + ", s3Endpoint='"
-                    + s3Endpoint + '\'' + '}';
-        }
-    }
+    @CommandLine.Mixin
+    private S3TuningOptions s3TuningOptions;
 
     @Override
     public void run() {
-        log.info("Running load test with config: {}", this);
+        try (var fixturePool = new FixturePool()) {
+            run(fixturePool);
+        }
+    }
 
-        OcflRepository repo;
+    List<RunResult> run(FixturePool fixturePool) {
+        log.info("Running load test with config: {}", this);
 
         try {
             Files.createDirectories(tempDir);
@@ -129,45 +200,289 @@ public class NewObjectLoadTestCmd implements Runnable {
             throw new UncheckedIOException(e.getMessage(), e);
         }
 
-        if (storageOptions.directory != null) {
-            repo = RepoBuilder.buildFsRepo(storageOptions.directory);
-        } else {
-            repo = RepoBuilder.buildS3Repo(
-                    storageOptions.s3Options.s3Profile,
-                    storageOptions.s3Options.s3Region,
-                    storageOptions.s3Options.s3Endpoint,
-                    storageOptions.s3Options.s3Bucket,
-                    storageOptions.s3Options.s3Prefix,
-                    tempDir);
+        if (s3TuningOptions.isSet() && !storageOptions.isS3()) {
+            throw new IllegalArgumentException("S3 client tuning options only apply to S3 storage.");
+        }
+
+        var repoSettings = repoOptions.buildRepoSettings();
+        var objectFiles = fileSpecOptions.sampleObjectFiles();
+        log.info("Test objects: {}", FileSpec.summary(objectFiles));
+        var arrivalSchedule = rate == null ? null : ArrivalSchedule.parse(rate);
+        var tunings = s3TuningOptions.combinations();
+        if (coordinator != null && tunings.size() > 1) {
+            throw new IllegalArgumentException("A distributed test can only run with one S3 client tuning.");
         }
 
-        var fileSpec = FileSpec.convert(files);
+        var clusterWorker = coordinator == null
+                ? null
+                : new ClusterWorker(
+                        coordinator,
+                        workerName == null
+                                ? ManagementFactory.getRuntimeMXBean().getName()
+                                : workerName);
+
+        try {
+            var runResults = new ArrayList<RunResult>();
+            for (var i = 0; i < tunings.size(); i++) {
+                var tuning = tunings.get(i);
+                var reportSuffix = "";
+                if (tunings.size() > 1) {
+                    log.info("Running S3 client tuning {} of {}: {}", i + 1, tunings.size(), tuning.effective());
+                    reportSuffix = "-" + (i + 1);
+                }
+                runResults.add(runTest(
+                        tuning, repoSettings, reportSuffix, objectFiles, arrivalSchedule, fixturePool, clusterWorker));
+            }
+            if (runResults.size() > 1) {
+                logSweep(runResults);
+            }
+            return runResults;
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Load test was interrupted.", e);
+        } finally {
+            if (clusterWorker != null) {
+                clusterWorker.close();
+            }
+            storageOptions.close();
+        }
+    }
+
+    private RunResult runTest(
+            S3ClientTuning tuning,
+            RepoSettings repoSettings,
+            String reportSuffix,
+            Map<String, FileSpec.ObjectFile> objectFiles,
+            ArrivalSchedule arrivalSchedule,
+            FixturePool fixturePool,
+            ClusterWorker clusterWorker)
+            throws InterruptedException {
+        var inventoryCache = repoOptions.buildInventoryCache(storageOptions.isS3());
+        var stageRecorder = stageTimings ? new StageRecorder() : null;
+        var prefixDistribution = repoOptions.buildPrefixDistribution(repoSettings);
+        var repo = storageOptions.buildRepo(
+                tempDir, tuning, new RepoConfig(repoSettings, inventoryCache, stageRecorder, null));
+        var writeRecorder = reportOptions.newIntervalRecorder("write" + reportSuffix);
+        if (contentSource == NewObjectLoadTest.ContentSource.MOVE) {
+            warnIfMoveCopies(storageOptions.workParent(tempDir));
+        }
+        if (clusterWorker != null) {
+            writeRecorder.addListener(clusterWorker::sendInterval);
+        }
 
         var loadTest = new NewObjectLoadTest(
-                repo, tempDir, iterations, warmupIterations, threadCount, processingThreadCount, fileSpec);
+                repo,
+                tempDir,
+                new NewObjectLoadTest.LoadSettings(
+                        iterations, warmupIterations, threadCount, processingThreadCount, threadMode, arrivalSchedule),
+                new NewObjectLoadTest.ContentSettings(
+                        objectFiles,
+                        contentSource,
+                        fileSpecOptions.seed(),
+                        fileSpecOptions.compressibility(),
+                        fixturePool,
+                        cloneMode),
+                new NewObjectLoadTest.VersionSettings(versions, changeFraction, versionDuplicateFraction),
+                new NewObjectLoadTest.Recorders(
+                        writeRecorder,
+                        arrivalSchedule == null ? null : reportOptions.newIntervalRecorder("service" + reportSuffix),
+                        reportOptions.newResourceSampler("resources" + reportSuffix),
+                        stageRecorder,
+                        inventoryCache,
+                        prefixDistribution),
+                new Purger(
+                        repo,
+                        purgeMode,
+                        purgeThreads,
+                        purgeQueue,
+                        reportOptions.newIntervalRecorder("purge" + reportSuffix)),
+                clusterWorker);
 
         try {
-            var histogram = loadTest.run();
+            var results = loadTest.run();
+            if (clusterWorker != null) {
+                clusterWorker.done();
+            }
 
-            cleanup();
+            storageOptions.cleanup(tempDir);
 
-            var out = new ByteArrayOutputStream();
-            histogram.outputPercentileDistribution(new PrintStream(out), 1_000_000.0);
-            log.info("Output in milliseconds:\n{}", out.toString(StandardCharsets.UTF_8));
-        } catch (InterruptedException e) {
-            throw new RuntimeException("Load test was interrupted.", e);
+            var totals = results.totals();
+            var runResult = new RunResult(
+                    tuning,
+                    storageOptions.storageType(),
+                    repoSettings,
+                    prefixDistribution.report(),
+                    totals,
+                    results.resources().processWriteBytes());
+            log.info(
+                    "Throughput: {} ops/s {} MB/s. Output in milliseconds:\n{}",
+                    String.format("%.3f", runResult.opsPerSecond()),
+                    String.format("%.2f", runResult.mbPerSecond()),
+                    Histograms.toMillis(totals.histogram()));
+
+            var storedBytes = results.storedBytes();
+            log.info(
+                    "Logical bytes: {} ({} MB/s). Stored bytes: {} ({} MB/s). Deduplicated: {}%",
+                    totals.bytes(),
+                    String.format("%.2f", Histograms.mbPerSecond(totals.bytes(), totals.duration())),
+                    storedBytes,
+                    String.format("%.2f", Histograms.mbPerSecond(storedBytes, totals.duration())),
+                    String.format(
+                            "%.1f", totals.bytes() == 0 ? 0 : 100.0 * (totals.bytes() - storedBytes) / totals.bytes()));
+
+            log.info("Failed writes: {}", results.failures());
+
+            log.info("Resources during measurement: {}", results.resources().summary());
+
+            var resources = results.resources();
+            log.info(
+                    "Bytes written per logical byte: process={} disk={}",
+                    formatWriteAmplification(runResult.writeAmplification()),
+                    formatWriteAmplification(RunResult.writeAmplification(resources.diskWriteBytes(), totals.bytes())));
+
+            if (contentSource == NewObjectLoadTest.ContentSource.MOVE) {
+                log.info(
+                        "Test object clone ({}) in milliseconds: {}",
+                        cloneMode,
+                        Histograms.summary(results.cloneHistogram()));
+            }
+
+            if (arrivalSchedule != null) {
+                log.info(
+                        "Service time at {}, measured from when writes actually started and corrected for"
+                                + " coordinated omission. Output in milliseconds:\n{}",
+                        arrivalSchedule,
+                        Histograms.toMillis(results.serviceTotals().histogram()));
+            }
+
+            if (purgeMode != Purger.Mode.NONE) {
+                var purgeTotals = results.purgeTotals();
+                log.info(
+                        "Purge ({}) output in milliseconds:\n{}",
+                        purgeMode,
+                        Histograms.toMillis(purgeTotals.histogram()));
+            }
+
+            if (stageRecorder != null) {
+                var stageSummary = new StringBuilder();
+                for (var stage : StageRecorder.Stage.values()) {
+                    stageSummary
+                            .append(String.format("%-24s", stage))
+                            .append(Histograms.summary(stageRecorder.histogram(stage)))
+                            .append("\n");
+                }
+                stageSummary
+                        .append(String.format("%-24s", "TOTAL_V1"))
+                        .append(Histograms.summary(results.versionHistograms().get(0)))
+                        .append("\n");
+                log.info("Latency by object creation stage in milliseconds:\n{}", stageSummary);
+            }
+
+            if (versions > 1) {
+                var versionSummary = new StringBuilder();
+                var versionHistograms = results.versionHistograms();
+                for (var i = 0; i < versionHistograms.size(); i++) {
+                    versionSummary
+                            .append("v")
+                            .append(i + 1)
+                            .append(": ")
+                            .append(Histograms.summary(versionHistograms.get(i)))
+                            .append("\n");
+                }
+                log.info("Latency by version in milliseconds:\n{}", versionSummary);
+            }
+
+            if (storageOptions.isS3()) {
+                log.info("S3 client: {}", tuning.effective());
+            }
+
+            log.info("Repository: {}", repoSettings.effective());
+            log.info("Object roots by prefix: {}", runResult.prefixes());
+
+            log.info("Inventory cache:\n{}", inventoryCache.report());
+
+            return runResult;
         } finally {
             repo.close();
         }
     }
 
-    private void cleanup() {
-        if (storageOptions.directory != null) {
-            FileUtil.safeDeleteDirectory(storageOptions.directory.resolve(RepoBuilder.ROOT));
-            FileUtil.safeDeleteDirectory(storageOptions.directory.resolve(RepoBuilder.WORK));
-        } else {
-            FileUtil.safeDeleteDirectory(tempDir.resolve(RepoBuilder.WORK));
+    record RunResult(
+            S3ClientTuning tuning,
+            String storageType,
+            RepoSettings repoSettings,
+            String prefixes,
+            IntervalRecorder.Totals totals,
+            long processWriteBytes) {
+        double opsPerSecond() {
+            return totals.histogram().getTotalCount() / (totals.duration().toNanos() / 1_000_000_000.0);
         }
+
+        double mbPerSecond() {
+            return Histograms.mbPerSecond(totals.bytes(), totals.duration());
+        }
+
+        double p99Millis() {
+            return Histograms.millis(totals.histogram().getValueAtPercentile(99));
+        }
+
+        double writeAmplification() {
+            return writeAmplification(processWriteBytes, totals.bytes());
+        }
+
+        static double writeAmplification(long writtenBytes, long logicalBytes) {
+            if (writtenBytes < 0 || logicalBytes == 0) {
+                return -1;
+            }
+            return (double) writtenBytes / logicalBytes;
+        }
+    }
+
+    /**
+     * Files are only moved within a filesystem, so moving into a repository on another filesystem measures a copy.
+     */
+    private void warnIfMoveCopies(Path workParent) {
+        try {
+            if (!Files.getFileStore(tempDir).equals(Files.getFileStore(workParent))) {
+                log.warn(
+                        "The temp directory {} is on a different filesystem than {}. Moved files will be copied.",
+                        tempDir,
+                        workParent);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to compare the filesystems of {} and {}", tempDir, workParent, e);
+        }
+    }
+
+    private static String formatWriteAmplification(double writeAmplification) {
+        return writeAmplification < 0 ? "n/a" : String.format("%.3f", writeAmplification);
+    }
+
+    private static void logSweep(List<RunResult> runResults) {
+        var ranked = runResults.stream()
+                .sorted(Comparator.comparingDouble(RunResult::mbPerSecond).reversed())
+                .toList();
+        var bestP99 = runResults.stream()
+                .min(Comparator.comparingDouble(RunResult::p99Millis))
+                .orElseThrow();
+
+        var table = new StringBuilder(
+                String.format("%-4s %10s %10s %12s  %s%n", "rank", "MB/s", "ops/s", "p99", "settings"));
+        for (var i = 0; i < ranked.size(); i++) {
+            var result = ranked.get(i);
+            table.append(String.format(
+                    "%-4d %10.2f %10.3f %12.3f  %s%n",
+                    i + 1,
+                    result.mbPerSecond(),
+                    result.opsPerSecond(),
+                    result.p99Millis(),
+                    result.tuning().effective()));
+        }
+
+        log.info(
+                "S3 client tuning sweep, ranked by MB/s. p99 in milliseconds:\n{}\nBest MB/s: {}\nBest p99: {}",
+                table,
+                ranked.get(0).tuning().effective(),
+                bestP99.tuning().effective());
     }
 
     @Override
@@ -176,9 +491,25 @@ public class NewObjectLoadTestCmd implements Runnable {
                 + iterations + ", warmupIterations="
                 + warmupIterations + ", threadCount="
                 + threadCount + ", processingThreadCount="
-                + processingThreadCount + ", files="
-                + files + ", tempDir="
+                + processingThreadCount + ", threadMode="
+                + threadMode + ", contentSource="
+                + contentSource + ", cloneMode="
+                + cloneMode + ", versions="
+                + versions + ", changeFraction="
+                + changeFraction + ", versionDuplicateFraction="
+                + versionDuplicateFraction + ", stageTimings="
+                + stageTimings + ", purgeMode="
+                + purgeMode + ", purgeThreads="
+                + purgeThreads + ", purgeQueue="
+                + purgeQueue + ", rate="
+                + rate + ", coordinator="
+                + coordinator + ", workerName="
+                + workerName + ", tempDir="
                 + tempDir + ", storageOptions="
-                + storageOptions + '}';
+                + storageOptions + ", fileSpecOptions="
+                + fileSpecOptions + ", repoOptions="
+                + repoOptions + ", reportOptions="
+                + reportOptions + ", s3TuningOptions="
+                + s3TuningOptions + '}';
     }
 }
@@ -1,27 +1,53 @@
 package com.pwinckles.ocfl.load;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.Objects;
+import java.util.SplittableRandom;
 import java.util.UUID;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Generates test objects on disk, in parallel chunks. A generator with the same seed produces the same objects.
+ */
 public class ObjectGenerator {
 
-    private static final int BUFFER_SIZE = 8192;
+    private static final Logger log = LoggerFactory.getLogger(ObjectGenerator.class);
+
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+
+    private static final byte[] ZEROS = new byte[RandomInputStream.BLOCK_SIZE];
 
     private final Path root;
+    private final long seed;
+    private final int randomBytesPerBlock;
+    private final AtomicLong objectCount = new AtomicLong();
 
-    public ObjectGenerator(Path root) {
+    public ObjectGenerator(Path root, long seed, double compressibility) {
         this.root = Objects.requireNonNull(root);
+        this.seed = seed;
+        this.randomBytesPerBlock = RandomInputStream.randomBytesPerBlock(compressibility);
     }
 
-    public Path generate(Map<Long, Integer> fileSpec) {
+    public Path generate(Map<String, FileSpec.ObjectFile> objectFiles) {
         var uuid = UUID.randomUUID().toString();
+        var objectSeed = mix(seed + objectCount.getAndIncrement());
         Path objectPath;
 
         try {
@@ -30,31 +56,92 @@ public class ObjectGenerator {
             throw new UncheckedIOException(e.getMessage(), e);
         }
 
-        int i = 1;
+        var start = System.nanoTime();
+        var tasks = new ArrayList<ForkJoinTask<?>>();
+        var totalBytes = 0L;
 
-        for (var entry : fileSpec.entrySet()) {
-            var size = entry.getKey();
-            var count = entry.getValue();
-            for (int j = 0; j < count; j++) {
-                writeFile(objectPath.resolve("file-" + i++ + ".bin"), size);
+        for (var entry : objectFiles.entrySet()) {
+            var file = objectPath.resolve(entry.getKey());
+            var size = entry.getValue().size();
+            var fileSeed = mix(objectSeed ^ entry.getValue().contentId().hashCode());
+            totalBytes += size;
+
+            try {
+                Files.createDirectories(file.getParent());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
+
+            try (var channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                if (size > 0) {
+                    // Extend the file to its full size so that chunks can be written in any order
+                    channel.write(ByteBuffer.allocate(1), size - 1);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
+
+            for (long position = 0; position < size; position += CHUNK_SIZE) {
+                var chunkPosition = position;
+                var chunkSize = (int) Math.min(CHUNK_SIZE, size - position);
+                tasks.add(ForkJoinTask.adapt(
+                        () -> writeChunk(file, chunkPosition, chunkSize, mix(fileSeed + chunkPosition))));
             }
         }
 
+        tasks.forEach(ForkJoinPool.commonPool()::execute);
+        tasks.forEach(ForkJoinTask::join);
+
+        var duration = Duration.ofNanos(System.nanoTime() - start);
+        log.info(
+                "Generated test object {} with {} bytes in {} ({} MB/s)",
+                objectPath,
+                totalBytes,
+                duration,
+                String.format("%.2f", Histograms.mbPerSecond(totalBytes, duration)));
+
         return objectPath;
     }
 
-    private void writeFile(Path path, long size) {
-        var bytes = new byte[BUFFER_SIZE];
-        try (var out = new BufferedOutputStream(Files.newOutputStream(path))) {
-            var written = 0;
-            while (written < size) {
-                ThreadLocalRandom.current().nextBytes(bytes);
-                int len = (int) Math.min(BUFFER_SIZE, size - written);
-                out.write(bytes, 0, len);
-                written += len;
+    private void writeChunk(Path file, long position, int size, long chunkSeed) {
+        var buffer = BUFFER.get().clear();
+        var random = new SplittableRandom(chunkSeed);
+        while (buffer.position() + Long.BYTES <= size) {
+            buffer.putLong(random.nextLong());
+        }
+        var last = random.nextLong();
+        while (buffer.position() < size) {
+            buffer.put((byte) last);
+            last >>>= Byte.SIZE;
+        }
+        if (randomBytesPerBlock < RandomInputStream.BLOCK_SIZE) {
+            // Chunks are block aligned, so the compressible tail of each block is at the same offset in every block
+            for (var block = 0; block < size; block += RandomInputStream.BLOCK_SIZE) {
+                var zeroStart = block + randomBytesPerBlock;
+                var zeroEnd = Math.min(block + RandomInputStream.BLOCK_SIZE, size);
+                if (zeroStart < zeroEnd) {
+                    buffer.put(zeroStart, ZEROS, 0, zeroEnd - zeroStart);
+                }
+            }
+        }
+        buffer.flip();
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            var offset = position;
+            while (buffer.hasRemaining()) {
+                offset += channel.write(buffer, offset);
             }
         } catch (IOException e) {
             throw new UncheckedIOException(e.getMessage(), e);
         }
     }
+
+    /**
+     * Spreads the bits of related seeds so that neighbouring seeds produce unrelated content.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
 }
@@ -0,0 +1,53 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.core.extension.storage.layout.OcflStorageLayoutExtension;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how the object roots that are written are spread across key prefixes. S3 scales request rates per prefix,
+ * so a layout that concentrates object roots under few prefixes limits how fast a bucket can be written.
+ */
+public class PrefixDistribution {
+
+    private final OcflStorageLayoutExtension layout;
+    private final int prefixLength;
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    public PrefixDistribution(OcflStorageLayoutExtension layout, int prefixLength) {
+        if (prefixLength < 1) {
+            throw new IllegalArgumentException("Prefix length must be 1 or more.");
+        }
+        this.layout = Objects.requireNonNull(layout, "layout cannot be null");
+        this.prefixLength = prefixLength;
+    }
+
+    public void record(String objectId) {
+        var root = layout.mapObjectId(objectId);
+        var prefix = root.substring(0, Math.min(prefixLength, root.length()));
+        counts.computeIfAbsent(prefix, k -> new LongAdder()).increment();
+    }
+
+    public void reset() {
+        counts.clear();
+    }
+
+    public String report() {
+        var total = 0L;
+        var busiest = "";
+        var busiestCount = 0L;
+        for (var entry : counts.entrySet()) {
+            var count = entry.getValue().sum();
+            total += count;
+            if (count > busiestCount) {
+                busiest = entry.getKey();
+                busiestCount = count;
+            }
+        }
+        return String.format(
+                "prefixLength=%d objects=%d distinctPrefixes=%d busiestPrefix='%s' busiestShare=%.2f%%",
+                prefixLength, total, counts.size(), busiest, total == 0 ? 0 : busiestCount * 100.0 / total);
+    }
+}
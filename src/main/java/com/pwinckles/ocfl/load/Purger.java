@@ -0,0 +1,153 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.api.OcflRepository;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Purges objects that were written by a load test. Every purge is timed separately from the writes.
+ */
+public class Purger {
+
+    private static final Logger log = LoggerFactory.getLogger(Purger.class);
+
+    public enum Mode {
+        INLINE,
+        ASYNC,
+        BATCH,
+        NONE
+    }
+
+    private final OcflRepository repo;
+    private final Mode mode;
+    private final int threadCount;
+    private final int maxPending;
+    private final IntervalRecorder intervalRecorder;
+
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final Semaphore permits;
+    private ExecutorService executor;
+
+    public Purger(OcflRepository repo, Mode mode, int threadCount, int maxPending, IntervalRecorder intervalRecorder) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Purge thread count must be 1 or more.");
+        }
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("Max pending purges must be 1 or more.");
+        }
+
+        this.repo = Objects.requireNonNull(repo);
+        this.mode = Objects.requireNonNull(mode);
+        this.threadCount = threadCount;
+        this.maxPending = maxPending;
+        this.intervalRecorder = Objects.requireNonNull(intervalRecorder);
+        this.permits = new Semaphore(maxPending);
+    }
+
+    public void start() {
+        intervalRecorder.start();
+        if (mode == Mode.ASYNC || mode == Mode.BATCH) {
+            executor = Executors.newFixedThreadPool(threadCount);
+        }
+        if (mode == Mode.NONE) {
+            log.warn("Purging is disabled. Objects written to S3 will not be removed after the test.");
+        }
+    }
+
+    /**
+     * In ASYNC mode, this blocks when the maximum number of pending purges is reached.
+     */
+    public void purge(String objectId) throws InterruptedException {
+        switch (mode) {
+            case INLINE -> timedPurge(objectId);
+            case ASYNC -> {
+                permits.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            timedPurge(objectId);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+            case BATCH -> pending.add(objectId);
+            case NONE -> {}
+        }
+    }
+
+    /**
+     * Waits for all outstanding purges to complete, including the queued purges in BATCH mode.
+     */
+    public void drain() throws InterruptedException {
+        if (mode == Mode.ASYNC) {
+            permits.acquire(maxPending);
+            permits.release(maxPending);
+        } else if (mode == Mode.BATCH) {
+            purgePending();
+        }
+    }
+
+    public void startMeasuring() {
+        intervalRecorder.startMeasuring();
+    }
+
+    public IntervalRecorder.Totals finish() throws InterruptedException {
+        IntervalRecorder.Totals totals;
+        try {
+            drain();
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            totals = intervalRecorder.stop();
+        }
+        if (failures.get() > 0) {
+            log.warn("Failed to purge {} objects", failures.get());
+        }
+        return totals;
+    }
+
+    private void purgePending() throws InterruptedException {
+        log.info("Purging {} objects", pending.size());
+        var futures = new ArrayList<Future<?>>();
+        String objectId;
+        while ((objectId = pending.poll()) != null) {
+            var id = objectId;
+            futures.add(executor.submit(() -> timedPurge(id)));
+        }
+        for (var future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("Failed to purge object", e);
+            }
+        }
+    }
+
+    private void timedPurge(String objectId) {
+        var start = System.nanoTime();
+        try {
+            repo.purgeObject(objectId);
+            intervalRecorder.record(System.nanoTime() - start, 0);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            log.error("Failed to purge object {}", objectId, e);
+        }
+    }
+}
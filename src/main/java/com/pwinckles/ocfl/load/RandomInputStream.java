@@ -0,0 +1,123 @@
+package com.pwinckles.ocfl.load;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * InputStream that produces a fixed number of random bytes without touching the disk.
+ */
+public class RandomInputStream extends InputStream {
+
+    static final int BLOCK_SIZE = 4096;
+
+    private final long size;
+    private final SplittableRandom seeded;
+    private final int randomBytesPerBlock;
+    private long position;
+    // The unused bytes of the last long that was generated, so that output doesn't depend on how reads are chunked
+    private long current;
+    private int currentBytes;
+
+    public RandomInputStream(long size) {
+        this(size, null, 0);
+    }
+
+    public RandomInputStream(long size, long seed, double compressibility) {
+        this(size, new SplittableRandom(seed), compressibility);
+    }
+
+    private RandomInputStream(long size, SplittableRandom seeded, double compressibility) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must be 0 or more.");
+        }
+        this.size = size;
+        this.seeded = seeded;
+        this.randomBytesPerBlock = randomBytesPerBlock(compressibility);
+    }
+
+    static int randomBytesPerBlock(double compressibility) {
+        if (compressibility < 0 || compressibility > 1) {
+            throw new IllegalArgumentException("Compressibility must be between 0 and 1.");
+        }
+        return (int) Math.round(BLOCK_SIZE * (1 - compressibility));
+    }
+
+    @Override
+    public int read() {
+        if (position >= size) {
+            return -1;
+        }
+        var compressed = position % BLOCK_SIZE >= randomBytesPerBlock;
+        position++;
+        var value = nextByte();
+        return compressed ? 0 : value & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= size) {
+            return -1;
+        }
+
+        var toRead = (int) Math.min(len, size - position);
+        var end = off + toRead;
+        var i = off;
+        while (i < end && currentBytes > 0) {
+            b[i++] = nextByte();
+        }
+        while (end - i >= Long.BYTES) {
+            var value = nextLong();
+            for (int j = 0; j < Long.BYTES; j++, i++) {
+                b[i] = (byte) value;
+                value >>>= Byte.SIZE;
+            }
+        }
+        while (i < end) {
+            b[i++] = nextByte();
+        }
+        if (randomBytesPerBlock < BLOCK_SIZE) {
+            zeroFill(b, off, toRead);
+        }
+        position += toRead;
+        return toRead;
+    }
+
+    private void zeroFill(byte[] b, int off, int len) {
+        var absolute = position;
+        var end = off + len;
+        for (int i = off; i < end; ) {
+            var inBlock = (int) (absolute % BLOCK_SIZE);
+            var n = Math.min(BLOCK_SIZE - inBlock, end - i);
+            if (inBlock + n > randomBytesPerBlock) {
+                Arrays.fill(b, i + Math.max(0, randomBytesPerBlock - inBlock), i + n, (byte) 0);
+            }
+            i += n;
+            absolute += n;
+        }
+    }
+
+    private byte nextByte() {
+        if (currentBytes == 0) {
+            current = nextLong();
+            currentBytes = Long.BYTES;
+        }
+        var value = (byte) current;
+        current >>>= Byte.SIZE;
+        currentBytes--;
+        return value;
+    }
+
+    private long nextLong() {
+        return seeded != null ? seeded.nextLong() : ThreadLocalRandom.current().nextLong();
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, size - position);
+    }
+}
@@ -0,0 +1,345 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.api.OcflRepository;
+import io.ocfl.api.model.ObjectVersionId;
+import io.ocfl.api.model.VersionInfo;
+import io.ocfl.core.util.FileUtil;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Seeds the repository with a corpus of objects and then reads random objects from it as many times as possible.
+ */
+public class ReadObjectLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadObjectLoadTest.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum ReadMode {
+        /**
+         * Export the entire object to disk using {@link OcflRepository#getObject(ObjectVersionId, Path)}
+         */
+        EXPORT,
+        /**
+         * Stream every file in the object using {@link OcflRepository#getObject(ObjectVersionId)}
+         */
+        STREAM,
+        /**
+         * Export every object, and then stream every object, each measured separately
+         */
+        BOTH
+    }
+
+    public record Results(
+            Histogram exportHistogram,
+            long exportBytes,
+            Duration exportDuration,
+            Histogram streamHistogram,
+            long streamBytes,
+            Duration streamDuration) {}
+
+    private final OcflRepository repo;
+    private final Path tempDir;
+    private final int objectCount;
+    private final long iterations;
+    private final long warmupIterations;
+    private final int threadCount;
+    private final ReadMode readMode;
+    private final Map<String, FileSpec.ObjectFile> objectFiles;
+    private final long objectSize;
+    private final MeteredCache<?, ?> inventoryCache;
+
+    private final ObjectGenerator objectGenerator;
+
+    public ReadObjectLoadTest(
+            OcflRepository repo,
+            Path tempDir,
+            int objectCount,
+            long iterations,
+            long warmupIterations,
+            int threadCount,
+            ReadMode readMode,
+            Map<String, FileSpec.ObjectFile> objectFiles,
+            long seed,
+            double compressibility,
+            MeteredCache<?, ?> inventoryCache) {
+        if (objectCount < 1) {
+            throw new IllegalArgumentException("Object count must be 1 or more.");
+        }
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be 1 or more.");
+        }
+        if (warmupIterations < 1) {
+            throw new IllegalArgumentException("Warmup iterations must be 1 or more.");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be 1 or more.");
+        }
+        if (objectFiles == null || objectFiles.isEmpty()) {
+            throw new IllegalArgumentException("File spec must contain 1 or more files.");
+        }
+
+        this.repo = Objects.requireNonNull(repo);
+        this.tempDir = Objects.requireNonNull(tempDir);
+        this.objectCount = objectCount;
+        this.iterations = iterations;
+        this.warmupIterations = warmupIterations;
+        this.threadCount = threadCount;
+        this.readMode = Objects.requireNonNull(readMode);
+        this.objectFiles = objectFiles;
+        this.objectSize = objectFiles.values().stream()
+                .mapToLong(FileSpec.ObjectFile::size)
+                .sum();
+
+        this.inventoryCache = Objects.requireNonNull(inventoryCache);
+
+        this.objectGenerator = new ObjectGenerator(tempDir, seed, compressibility);
+    }
+
+    public Results run() throws InterruptedException {
+        log.info("Starting read load test");
+
+        var prefix = "read-" + UUID.randomUUID() + "-";
+        var objectIds = new ArrayList<String>(objectCount);
+        for (var i = 0; i < objectCount; i++) {
+            objectIds.add(prefix + i);
+        }
+
+        try {
+            seed(objectIds);
+
+            var exportHistogram = new ConcurrentHistogram(3);
+            var streamHistogram = new ConcurrentHistogram(3);
+            var exportBytes = new LongAdder();
+            var streamBytes = new LongAdder();
+            var threads = new ArrayList<Thread>(threadCount);
+            var phaser = new Phaser(threadCount + 1);
+            var modes = measuredModes();
+
+            for (var i = 0; i < threadCount; i++) {
+                threads.add(createThread(
+                        objectIds, modes, exportHistogram, exportBytes, streamHistogram, streamBytes, phaser));
+            }
+
+            startThreads(threads);
+
+            // Every mode is measured on its own, so that each has its own duration
+            var durations = new ArrayList<Duration>();
+            Instant start = null;
+            for (var i = 0; i < modes.size(); i++) {
+                phaser.arriveAndAwaitAdvance();
+                if (start == null) {
+                    exportHistogram.reset();
+                    streamHistogram.reset();
+                    exportBytes.reset();
+                    streamBytes.reset();
+                    inventoryCache.reset();
+                } else {
+                    durations.add(Duration.between(start, Instant.now()));
+                }
+                start = Instant.now();
+                phaser.arriveAndAwaitAdvance();
+            }
+
+            joinThreads(threads);
+            durations.add(Duration.between(start, Instant.now()));
+
+            var exportDuration = readMode == ReadMode.STREAM ? Duration.ZERO : durations.get(0);
+            var streamDuration = readMode == ReadMode.EXPORT ? Duration.ZERO : durations.get(durations.size() - 1);
+
+            log.info("Read load test complete");
+            return new Results(
+                    exportHistogram,
+                    exportBytes.sum(),
+                    exportDuration,
+                    streamHistogram,
+                    streamBytes.sum(),
+                    streamDuration);
+        } finally {
+            purge(objectIds);
+        }
+    }
+
+    private List<ReadMode> measuredModes() {
+        return readMode == ReadMode.BOTH ? List.of(ReadMode.EXPORT, ReadMode.STREAM) : List.of(readMode);
+    }
+
+    private void seed(List<String> objectIds) throws InterruptedException {
+        log.info("Seeding repository with {} objects", objectCount);
+
+        var seedStart = Instant.now();
+        var objectPath = objectGenerator.generate(objectFiles);
+
+        var versionInfo =
+                new VersionInfo().setUser("Peter", "pwinckles@example.com").setMessage("Seeding");
+
+        var executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            var futures = objectIds.stream()
+                    .map(objectId -> executor.submit(
+                            () -> repo.putObject(ObjectVersionId.head(objectId), objectPath, versionInfo)))
+                    .toList();
+            for (var future : futures) {
+                getFuture(future);
+            }
+        } finally {
+            executor.shutdownNow();
+            FileUtil.safeDeleteDirectory(objectPath);
+        }
+
+        log.info("Seeded {} objects in {}", objectCount, Duration.between(seedStart, Instant.now()));
+    }
+
+    private void purge(List<String> objectIds) {
+        log.info("Purging {} seeded objects", objectIds.size());
+        for (var objectId : objectIds) {
+            try {
+                repo.purgeObject(objectId);
+            } catch (RuntimeException e) {
+                log.error("Failed to purge object {}", objectId, e);
+            }
+        }
+    }
+
+    private Thread createThread(
+            List<String> objectIds,
+            List<ReadMode> modes,
+            Histogram exportHistogram,
+            LongAdder exportBytes,
+            Histogram streamHistogram,
+            LongAdder streamBytes,
+            Phaser phaser) {
+        return new Thread() {
+            private final String id = UUID.randomUUID().toString();
+
+            @Override
+            public void run() {
+                setName(id);
+                log.info("Starting thread {}", id);
+
+                var exportRoot = tempDir.resolve("export-" + id);
+
+                try {
+                    Files.createDirectories(exportRoot);
+
+                    log.info("Running warmup for {} iterations", warmupIterations);
+                    runInner(exportRoot, readMode, warmupIterations);
+
+                    for (var mode : modes) {
+                        log.info("Waiting for other threads to finish.");
+                        phaser.arriveAndAwaitAdvance();
+                        phaser.arriveAndAwaitAdvance();
+
+                        log.info("Running {} read load test for {} iterations", mode, iterations);
+                        runInner(exportRoot, mode, iterations);
+                    }
+
+                    log.info("Completed test in thread {}", id);
+                } catch (InterruptedException e) {
+                    log.info("Thread interrupted");
+                } catch (IOException | RuntimeException e) {
+                    log.error("Error running test. Thread exiting.", e);
+                } finally {
+                    // Lets the other threads and the test move on if this thread exited early
+                    phaser.arriveAndDeregister();
+                    FileUtil.safeDeleteDirectory(exportRoot);
+                }
+            }
+
+            private void runInner(Path exportRoot, ReadMode readMode, long iterations) throws InterruptedException {
+                var runStart = Instant.now();
+
+                for (int i = 0; i < iterations; i++) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+
+                    var objectId = objectIds.get(ThreadLocalRandom.current().nextInt(objectIds.size()));
+
+                    try {
+                        if (readMode != ReadMode.STREAM) {
+                            exportObject(objectId, exportRoot.resolve(String.valueOf(i)));
+                        }
+                        if (readMode != ReadMode.EXPORT) {
+                            streamObject(objectId);
+                        }
+                    } catch (RuntimeException e) {
+                        log.error("Exception in thread: {}", id, e);
+                    }
+                }
+
+                log.info("Run completed in {}", Duration.between(runStart, Instant.now()));
+            }
+
+            private void exportObject(String objectId, Path output) {
+                try {
+                    var opStart = System.nanoTime();
+                    repo.getObject(ObjectVersionId.head(objectId), output);
+                    exportHistogram.recordValue(System.nanoTime() - opStart);
+                    exportBytes.add(objectSize);
+                } finally {
+                    FileUtil.safeDeleteDirectory(output);
+                }
+            }
+
+            private void streamObject(String objectId) {
+                var buffer = new byte[BUFFER_SIZE];
+                var opStart = System.nanoTime();
+                var object = repo.getObject(ObjectVersionId.head(objectId));
+                for (var file : object.getFiles()) {
+                    try (var stream = file.getStream()) {
+                        int read;
+                        while ((read = stream.read(buffer)) != -1) {
+                            streamBytes.add(read);
+                        }
+                        stream.checkFixity();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e.getMessage(), e);
+                    }
+                }
+                streamHistogram.recordValue(System.nanoTime() - opStart);
+            }
+        };
+    }
+
+    private void getFuture(Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to seed object", e);
+        }
+    }
+
+    private void startThreads(List<Thread> threads) {
+        for (var thread : threads) {
+            thread.start();
+        }
+    }
+
+    private void joinThreads(List<Thread> threads) throws InterruptedException {
+        for (var thread : threads) {
+            thread.join();
+        }
+    }
+}
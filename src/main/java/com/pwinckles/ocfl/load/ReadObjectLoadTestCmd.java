@@ -0,0 +1,155 @@
+package com.pwinckles.ocfl.load;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+@CommandLine.Command(
+        name = "read-obj-test",
+        description =
+                """
+                Seeds the OCFL repository with a corpus of test objects with characteristics that meet a supplied \
+                specification, and then reads random objects from the corpus as many times as possible. Objects \
+                are either exported to disk in their entirety, streamed file by file, or both.
+
+                When S3 options are specified, the OCFL repository is created in S3. When --s3-local is \
+                specified, it's created in an S3-compatible endpoint that's started in-process and stores \
+                objects on the local filesystem. Otherwise, it's created in a directory on the local filesystem.""",
+        mixinStandardHelpOptions = true)
+public class ReadObjectLoadTestCmd implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadObjectLoadTestCmd.class);
+
+    @CommandLine.Option(
+            names = "--objects",
+            description = "The number of objects to seed the repository with before reading.",
+            required = true)
+    private int objectCount;
+
+    @CommandLine.Option(
+            names = "--iterations",
+            description = "The number of objects to read in each thread.",
+            required = true)
+    private long iterations;
+
+    @CommandLine.Option(
+            names = "--warmup",
+            description = "The number of objects to read in each thread as a warmup.",
+            required = true)
+    private long warmupIterations;
+
+    @CommandLine.Option(names = "--threads", description = "The number of threads to run the test on.", required = true)
+    private int threadCount;
+
+    @CommandLine.Option(
+            names = "--read-mode",
+            description = "How objects are read. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "BOTH",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private ReadObjectLoadTest.ReadMode readMode;
+
+    @CommandLine.Option(
+            names = "--temp",
+            description = "The directory to use to write files before they're inserted into the repository,"
+                    + " and to export objects to.",
+            required = true)
+    private Path tempDir;
+
+    @CommandLine.ArgGroup(multiplicity = "1")
+    private StorageOptions storageOptions;
+
+    @CommandLine.Mixin
+    private FileSpecOptions fileSpecOptions;
+
+    @CommandLine.Mixin
+    private RepoOptions repoOptions;
+
+    @CommandLine.Mixin
+    private S3TuningOptions s3TuningOptions;
+
+    @Override
+    public void run() {
+        log.info("Running read load test with config: {}", this);
+
+        try {
+            Files.createDirectories(tempDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+
+        if (s3TuningOptions.isSet() && !storageOptions.isS3()) {
+            throw new IllegalArgumentException("S3 client tuning options only apply to S3 storage.");
+        }
+        var tuning = s3TuningOptions.single();
+
+        var inventoryCache = repoOptions.buildInventoryCache(storageOptions.isS3());
+        var repoSettings = repoOptions.buildRepoSettings();
+        var repo = storageOptions.buildRepo(tempDir, tuning, new RepoConfig(repoSettings, inventoryCache));
+        var objectFiles = fileSpecOptions.sampleObjectFiles();
+        log.info("Test objects: {}", FileSpec.summary(objectFiles));
+
+        var loadTest = new ReadObjectLoadTest(
+                repo,
+                tempDir,
+                objectCount,
+                iterations,
+                warmupIterations,
+                threadCount,
+                readMode,
+                objectFiles,
+                fileSpecOptions.seed(),
+                fileSpecOptions.compressibility(),
+                inventoryCache);
+
+        try {
+            var results = loadTest.run();
+
+            storageOptions.cleanup(tempDir);
+
+            if (readMode != ReadObjectLoadTest.ReadMode.STREAM) {
+                log.info(
+                        "Export throughput: {} MB/s. Output in milliseconds:\n{}",
+                        String.format("%.2f", Histograms.mbPerSecond(results.exportBytes(), results.exportDuration())),
+                        Histograms.toMillis(results.exportHistogram()));
+            }
+            if (readMode != ReadObjectLoadTest.ReadMode.EXPORT) {
+                log.info(
+                        "Stream throughput: {} MB/s. Output in milliseconds:\n{}",
+                        String.format("%.2f", Histograms.mbPerSecond(results.streamBytes(), results.streamDuration())),
+                        Histograms.toMillis(results.streamHistogram()));
+            }
+
+            if (storageOptions.isS3()) {
+                log.info("S3 client: {}", tuning.effective());
+            }
+
+            log.info("Repository: {}", repoSettings.effective());
+
+            log.info("Inventory cache:\n{}", inventoryCache.report());
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Load test was interrupted.", e);
+        } finally {
+            repo.close();
+            storageOptions.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReadObjectLoadTestCmd{" + "objectCount="
+                + objectCount + ", iterations="
+                + iterations + ", warmupIterations="
+                + warmupIterations + ", threadCount="
+                + threadCount + ", readMode="
+                + readMode + ", tempDir="
+                + tempDir + ", storageOptions="
+                + storageOptions + ", fileSpecOptions="
+                + fileSpecOptions + ", repoOptions="
+                + repoOptions + ", s3TuningOptions="
+                + s3TuningOptions + '}';
+    }
+}
@@ -0,0 +1,107 @@
+package com.pwinckles.ocfl.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.math3.stat.StatUtils;
+import org.apache.commons.math3.stat.inference.TTest;
+
+/**
+ * Flags regressions that are both statistically significant and larger than a minimum change. Throughput and p99
+ * latency are each tested with a one-sided Welch's t-test across the per-repetition values.
+ */
+public final class RegressionCheck {
+
+    public record Comparison(
+            String key,
+            SweepResult baseline,
+            SweepResult current,
+            double throughputChange,
+            double throughputP,
+            double p99Change,
+            double p99P,
+            boolean throughputRegression,
+            boolean p99Regression) {
+
+        public boolean regression() {
+            return throughputRegression || p99Regression;
+        }
+    }
+
+    private final double significance;
+    private final double minChange;
+
+    public RegressionCheck(double significance, double minChange) {
+        if (significance <= 0 || significance >= 1) {
+            throw new IllegalArgumentException("Significance must be between 0 and 1.");
+        }
+        if (minChange < 0) {
+            throw new IllegalArgumentException("Minimum change must be 0 or more.");
+        }
+        this.significance = significance;
+        this.minChange = minChange;
+    }
+
+    /**
+     * Results that are not in the baseline are skipped.
+     */
+    public List<Comparison> compare(List<SweepResult> baseline, List<SweepResult> current) {
+        var comparisons = new ArrayList<Comparison>();
+        for (var result : current) {
+            baseline.stream()
+                    .filter(base -> base.key().equals(result.key()))
+                    .findFirst()
+                    .ifPresent(base -> comparisons.add(compare(base, result)));
+        }
+        return comparisons;
+    }
+
+    private Comparison compare(SweepResult baseline, SweepResult current) {
+        var throughputChange = relativeChange(baseline.meanMbPerSecond(), current.meanMbPerSecond());
+        var throughputP = welchLessThanP(current.mbPerSecond(), baseline.mbPerSecond());
+
+        var p99Change = relativeChange(baseline.meanP99Millis(), current.meanP99Millis());
+        var p99P = welchLessThanP(baseline.p99Millis(), current.p99Millis());
+
+        return new Comparison(
+                current.key(),
+                baseline,
+                current,
+                throughputChange,
+                throughputP,
+                p99Change,
+                p99P,
+                !Double.isNaN(throughputP) && throughputP < significance && -throughputChange > minChange,
+                !Double.isNaN(p99P) && p99P < significance && p99Change > minChange);
+    }
+
+    private static double relativeChange(double baseline, double current) {
+        if (baseline == 0) {
+            return 0;
+        }
+        return (current - baseline) / baseline;
+    }
+
+    /**
+     * One-sided Welch's t-test of whether the mean of the first sample is less than the mean of the second.
+     */
+    static double welchLessThanP(List<Double> sample, List<Double> other) {
+        if (sample.size() < 2 || other.size() < 2) {
+            return Double.NaN;
+        }
+        var values = toArray(sample);
+        var otherValues = toArray(other);
+
+        if (StatUtils.variance(values) + StatUtils.variance(otherValues) == 0) {
+            return StatUtils.mean(values) < StatUtils.mean(otherValues) ? 0 : 1;
+        }
+
+        // TTest is two-sided and the t distribution is symmetric, so the one-sided p-value is half of it
+        var tTest = new TTest();
+        var halfP = tTest.tTest(values, otherValues) / 2;
+        return tTest.t(values, otherValues) < 0 ? halfP : 1 - halfP;
+    }
+
+    private static double[] toArray(List<Double> values) {
+        return values.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+}
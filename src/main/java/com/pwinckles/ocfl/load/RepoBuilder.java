@@ -3,16 +3,23 @@ package com.pwinckles.ocfl.load;
 import io.ocfl.api.OcflRepository;
 import io.ocfl.aws.OcflS3Client;
 import io.ocfl.core.OcflRepositoryBuilder;
-import io.ocfl.core.cache.NoOpCache;
-import io.ocfl.core.extension.storage.layout.config.HashedNTupleLayoutConfig;
+import io.ocfl.core.inventory.InventoryMapper;
+import io.ocfl.core.lock.ObjectLock;
+import io.ocfl.core.lock.ObjectLockBuilder;
+import io.ocfl.core.storage.cloud.CloudStorage;
+import io.ocfl.core.storage.common.Storage;
+import io.ocfl.core.storage.filesystem.FileSystemStorage;
+import io.ocfl.core.util.ObjectMappers;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 
@@ -21,16 +28,20 @@ public final class RepoBuilder {
     public static final String ROOT = "ocfl-root";
     public static final String WORK = "ocfl-work";
 
+    /**
+     * Where an S3 repository is. The profile, endpoint, and prefix may be null.
+     */
+    public record S3Location(String profile, String region, String endpoint, String bucket, String prefix) {}
+
     private RepoBuilder() {}
 
-    public static OcflRepository buildFsRepo(Path directory) {
+    public static OcflRepository buildFsRepo(Path directory, RepoConfig config) {
         try {
             var root = Files.createDirectories(directory.resolve(ROOT));
             var work = Files.createDirectories(directory.resolve(WORK));
-            return new OcflRepositoryBuilder()
-                    .defaultLayoutConfig(new HashedNTupleLayoutConfig())
-                    .inventoryCache(new NoOpCache<>())
-                    .storage(storage -> storage.fileSystem(root))
+            return configure(config)
+                    .storage(storage ->
+                            storage.storage(wrapStorage(new FileSystemStorage(root), config.stageRecorder())))
                     .workDir(work)
                     .build();
         } catch (IOException e) {
@@ -39,35 +50,84 @@ public final class RepoBuilder {
     }
 
     public static OcflRepository buildS3Repo(
-            String profile, String region, String endpoint, String bucket, String prefix, Path tempDir) {
+            S3Location location, S3ClientTuning tuning, Path tempDir, RepoConfig config) {
         AwsCredentialsProvider credentialsProvider;
-        if (profile == null || profile.isBlank()) {
+        if (location.profile() == null || location.profile().isBlank()) {
             credentialsProvider = DefaultCredentialsProvider.create();
         } else {
-            credentialsProvider =
-                    ProfileCredentialsProvider.builder().profileName(profile).build();
+            credentialsProvider = ProfileCredentialsProvider.builder()
+                    .profileName(location.profile())
+                    .build();
         }
 
-        var clientBuilder = S3AsyncClient.crtBuilder()
+        var clientBuilder = tuning.apply(S3AsyncClient.crtBuilder())
                 .credentialsProvider(credentialsProvider)
-                .region(Region.of(region));
+                .region(Region.of(location.region()));
 
-        if (endpoint != null) {
-            clientBuilder.endpointOverride(URI.create(endpoint));
+        if (location.endpoint() != null) {
+            clientBuilder.endpointOverride(URI.create(location.endpoint()));
         }
 
+        return buildS3Repo(clientBuilder.build(), location.bucket(), location.prefix(), tempDir, config);
+    }
+
+    public static OcflRepository buildLocalS3Repo(
+            LocalS3Server server, S3ClientTuning tuning, Path tempDir, RepoConfig config) {
+        // The local endpoint doesn't verify signatures, but the client still needs credentials to sign with
+        var client = tuning.apply(S3AsyncClient.crtBuilder())
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("local", "local")))
+                .region(Region.US_EAST_1)
+                .endpointOverride(server.endpoint())
+                .forcePathStyle(true)
+                .build();
+
+        return buildS3Repo(client, server.bucket(), null, tempDir, config);
+    }
+
+    private static OcflRepository buildS3Repo(
+            S3AsyncClient s3Client, String bucket, String prefix, Path tempDir, RepoConfig config) {
         try {
-            return new OcflRepositoryBuilder()
-                    .defaultLayoutConfig(new HashedNTupleLayoutConfig())
-                    .storage(storage -> storage.cloud(OcflS3Client.builder()
-                            .s3Client(clientBuilder.build())
-                            .bucket(bucket)
-                            .repoPrefix(prefix)
-                            .build()))
+            return configure(config)
+                    .storage(storage -> storage.storage(wrapStorage(
+                            new CloudStorage(OcflS3Client.builder()
+                                    .s3Client(s3Client)
+                                    .bucket(bucket)
+                                    .repoPrefix(prefix)
+                                    .build()),
+                            config.stageRecorder())))
                     .workDir(Files.createDirectories(tempDir.resolve(WORK)))
                     .build();
         } catch (IOException e) {
             throw new UncheckedIOException(e.getMessage(), e);
         }
     }
+
+    private static OcflRepositoryBuilder configure(RepoConfig config) {
+        return config.settings()
+                .apply(new OcflRepositoryBuilder())
+                .inventoryCache(config.inventoryCache())
+                .inventoryMapper(inventoryMapper(config.stageRecorder()))
+                .objectLock(objectLock(config.objectLock()));
+    }
+
+    private static Storage wrapStorage(Storage storage, StageRecorder stageRecorder) {
+        if (stageRecorder == null) {
+            return storage;
+        }
+        return new TimedStorage(storage, stageRecorder);
+    }
+
+    private static ObjectLock objectLock(ObjectLock objectLock) {
+        if (objectLock == null) {
+            return new ObjectLockBuilder().build();
+        }
+        return objectLock;
+    }
+
+    private static InventoryMapper inventoryMapper(StageRecorder stageRecorder) {
+        if (stageRecorder == null) {
+            return InventoryMapper.defaultMapper();
+        }
+        return new TimedInventoryMapper(ObjectMappers.defaultMapper(), stageRecorder);
+    }
 }
@@ -0,0 +1,25 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.core.cache.Cache;
+import io.ocfl.core.lock.ObjectLock;
+import io.ocfl.core.model.Inventory;
+import java.util.Objects;
+
+/**
+ * How a repository is configured, regardless of where it's stored.
+ */
+public record RepoConfig(
+        RepoSettings settings,
+        Cache<String, Inventory> inventoryCache,
+        StageRecorder stageRecorder,
+        ObjectLock objectLock) {
+
+    public RepoConfig {
+        Objects.requireNonNull(settings, "settings cannot be null");
+        Objects.requireNonNull(inventoryCache, "inventoryCache cannot be null");
+    }
+
+    public RepoConfig(RepoSettings settings, Cache<String, Inventory> inventoryCache) {
+        this(settings, inventoryCache, null, null);
+    }
+}
@@ -0,0 +1,161 @@
+package com.pwinckles.ocfl.load;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.ocfl.api.DigestAlgorithmRegistry;
+import io.ocfl.api.model.DigestAlgorithm;
+import io.ocfl.core.cache.CaffeineCache;
+import io.ocfl.core.cache.NoOpCache;
+import io.ocfl.core.model.Inventory;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import picocli.CommandLine;
+
+/**
+ * Options that control how the OCFL repository is configured, independent of where it is stored.
+ */
+public class RepoOptions {
+
+    public enum InventoryCacheType {
+        /**
+         * The cache the repository would have without this option
+         */
+        DEFAULT,
+        NONE,
+        BOUNDED
+    }
+
+    @CommandLine.Option(
+            names = "--inventory-cache",
+            description = "The type of inventory cache to use. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "DEFAULT",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private InventoryCacheType inventoryCacheType;
+
+    @CommandLine.Option(
+            names = "--inventory-cache-size",
+            description = "The maximum number of inventories the bounded inventory cache holds.",
+            defaultValue = "1000",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private long inventoryCacheSize;
+
+    @CommandLine.Option(
+            names = "--inventory-cache-ttl",
+            description = "How long an inventory stays in the bounded inventory cache after it was last accessed."
+                    + " ISO-8601 duration format, eg PT10M.",
+            defaultValue = "PT10M",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private Duration inventoryCacheTtl;
+
+    @CommandLine.Option(
+            names = "--layout",
+            description = "The storage layout to create the repository with. Only applies when the repository is"
+                    + " created; an existing repository keeps its layout. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "HASHED_N_TUPLE",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private RepoSettings.Layout layout;
+
+    @CommandLine.Option(
+            names = "--layout-digest-algorithm",
+            description = "The algorithm the hashed layouts hash object ids with, eg sha256 or md5.",
+            defaultValue = "sha256",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private String layoutDigestAlgorithm;
+
+    @CommandLine.Option(
+            names = "--layout-tuple-size",
+            description = "The number of characters in each tuple of the hashed layouts.",
+            defaultValue = "3",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int tupleSize;
+
+    @CommandLine.Option(
+            names = "--layout-tuples",
+            description = "The number of tuples the hashed layouts nest object roots in.",
+            defaultValue = "3",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int numberOfTuples;
+
+    @CommandLine.Option(
+            names = "--layout-short-object-root",
+            description = "Leave the tuples out of object root names in the HASHED_N_TUPLE layout.")
+    private boolean shortObjectRoot;
+
+    @CommandLine.Option(
+            names = "--digest-algorithm",
+            description = "The algorithm content is addressed by in inventories. Valid values: sha512, sha256.",
+            defaultValue = "sha512",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private String digestAlgorithm;
+
+    @CommandLine.Option(
+            names = "--prefix-length",
+            description = "The number of leading characters of an object root path that are counted as its prefix"
+                    + " when reporting how written objects are spread across prefixes.",
+            defaultValue = "3",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int prefixLength;
+
+    public MeteredCache<String, Inventory> buildInventoryCache(boolean s3) {
+        if (inventoryCacheSize < 1) {
+            throw new IllegalArgumentException("Inventory cache size must be 1 or more.");
+        }
+
+        return switch (inventoryCacheType) {
+            case DEFAULT -> s3 ? boundedCache(512, Duration.ofMinutes(10)) : new MeteredCache<>(new NoOpCache<>());
+            case NONE -> new MeteredCache<>(new NoOpCache<>());
+            case BOUNDED -> boundedCache(inventoryCacheSize, inventoryCacheTtl);
+        };
+    }
+
+    private static MeteredCache<String, Inventory> boundedCache(long size, Duration ttl) {
+        var evictions = new LongAdder();
+        return new MeteredCache<>(
+                new CaffeineCache<>(Caffeine.newBuilder()
+                        .maximumSize(size)
+                        .expireAfterAccess(ttl)
+                        .<String, Inventory>removalListener((key, value, cause) -> {
+                            if (cause.wasEvicted()) {
+                                evictions.increment();
+                            }
+                        })
+                        .build()),
+                evictions);
+    }
+
+    public RepoSettings buildRepoSettings() {
+        return new RepoSettings(
+                layout,
+                digestAlgorithm(layoutDigestAlgorithm),
+                tupleSize,
+                numberOfTuples,
+                shortObjectRoot,
+                digestAlgorithm(digestAlgorithm));
+    }
+
+    public PrefixDistribution buildPrefixDistribution(RepoSettings settings) {
+        return new PrefixDistribution(settings.newLayoutExtension(), prefixLength);
+    }
+
+    private static DigestAlgorithm digestAlgorithm(String name) {
+        var algorithm = DigestAlgorithmRegistry.getAlgorithm(name);
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Unknown digest algorithm: " + name);
+        }
+        return algorithm;
+    }
+
+    @Override
+    public String toString() {
+        return "RepoOptions{" + "inventoryCacheType="
+                + inventoryCacheType + ", inventoryCacheSize="
+                + inventoryCacheSize + ", inventoryCacheTtl="
+                + inventoryCacheTtl + ", layout="
+                + layout + ", layoutDigestAlgorithm="
+                + layoutDigestAlgorithm + ", tupleSize="
+                + tupleSize + ", numberOfTuples="
+                + numberOfTuples + ", shortObjectRoot="
+                + shortObjectRoot + ", digestAlgorithm="
+                + digestAlgorithm + ", prefixLength="
+                + prefixLength + '}';
+    }
+}
@@ -0,0 +1,111 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.api.model.DigestAlgorithm;
+import io.ocfl.core.OcflRepositoryBuilder;
+import io.ocfl.core.extension.OcflExtensionConfig;
+import io.ocfl.core.extension.storage.layout.FlatLayoutExtension;
+import io.ocfl.core.extension.storage.layout.HashedNTupleIdEncapsulationLayoutExtension;
+import io.ocfl.core.extension.storage.layout.HashedNTupleLayoutExtension;
+import io.ocfl.core.extension.storage.layout.OcflStorageLayoutExtension;
+import io.ocfl.core.extension.storage.layout.config.FlatLayoutConfig;
+import io.ocfl.core.extension.storage.layout.config.HashedNTupleIdEncapsulationLayoutConfig;
+import io.ocfl.core.extension.storage.layout.config.HashedNTupleLayoutConfig;
+import java.util.Objects;
+
+/**
+ * The storage layout and content digest algorithm a repository is created with.
+ */
+public record RepoSettings(
+        Layout layout,
+        DigestAlgorithm layoutDigestAlgorithm,
+        int tupleSize,
+        int numberOfTuples,
+        boolean shortObjectRoot,
+        DigestAlgorithm digestAlgorithm) {
+
+    public enum Layout {
+        /**
+         * 0002-flat-direct-storage-layout: object roots are directly under the storage root and named by their ids
+         */
+        FLAT,
+        /**
+         * 0004-hashed-n-tuple-storage-layout: object roots are nested in tuples of the hash of their ids and named by
+         * the hash
+         */
+        HASHED_N_TUPLE,
+        /**
+         * 0003-hash-and-id-n-tuple-storage-layout: object roots are nested in tuples of the hash of their ids and
+         * named by their encoded ids
+         */
+        HASHED_N_TUPLE_ID_ENCAPSULATION
+    }
+
+    public RepoSettings {
+        Objects.requireNonNull(layout, "layout cannot be null");
+        Objects.requireNonNull(layoutDigestAlgorithm, "layoutDigestAlgorithm cannot be null");
+        Objects.requireNonNull(digestAlgorithm, "digestAlgorithm cannot be null");
+        if (tupleSize < 0) {
+            throw new IllegalArgumentException("Tuple size must be 0 or more.");
+        }
+        if (numberOfTuples < 0) {
+            throw new IllegalArgumentException("Number of tuples must be 0 or more.");
+        }
+        if ((tupleSize == 0) != (numberOfTuples == 0)) {
+            throw new IllegalArgumentException("Tuple size and number of tuples must both be 0 if either is.");
+        }
+        if (!DigestAlgorithm.sha512.equals(digestAlgorithm) && !DigestAlgorithm.sha256.equals(digestAlgorithm)) {
+            throw new IllegalArgumentException("OCFL content digest algorithm must be sha512 or sha256.");
+        }
+    }
+
+    public OcflRepositoryBuilder apply(OcflRepositoryBuilder builder) {
+        return builder.defaultLayoutConfig(layoutConfig())
+                .ocflConfig(config -> config.setDefaultDigestAlgorithm(digestAlgorithm));
+    }
+
+    public OcflStorageLayoutExtension newLayoutExtension() {
+        OcflStorageLayoutExtension extension =
+                switch (layout) {
+                    case FLAT -> new FlatLayoutExtension();
+                    case HASHED_N_TUPLE -> new HashedNTupleLayoutExtension();
+                    case HASHED_N_TUPLE_ID_ENCAPSULATION -> new HashedNTupleIdEncapsulationLayoutExtension();
+                };
+        extension.init(layoutConfig());
+        return extension;
+    }
+
+    private OcflExtensionConfig layoutConfig() {
+        return switch (layout) {
+            case FLAT -> new FlatLayoutConfig();
+            case HASHED_N_TUPLE -> new HashedNTupleLayoutConfig()
+                    .setDigestAlgorithm(layoutDigestAlgorithm)
+                    .setTupleSize(tupleSize)
+                    .setNumberOfTuples(numberOfTuples)
+                    .setShortObjectRoot(shortObjectRoot);
+            case HASHED_N_TUPLE_ID_ENCAPSULATION -> new HashedNTupleIdEncapsulationLayoutConfig()
+                    .setDigestAlgorithm(layoutDigestAlgorithm)
+                    .setTupleSize(tupleSize)
+                    .setNumberOfTuples(numberOfTuples);
+        };
+    }
+
+    public String effective() {
+        var effective = new StringBuilder("layout=").append(layout);
+        if (layout != Layout.FLAT) {
+            effective
+                    .append(" layoutDigestAlgorithm=")
+                    .append(layoutDigestAlgorithm.getOcflName())
+                    .append(" tupleSize=")
+                    .append(tupleSize)
+                    .append(" numberOfTuples=")
+                    .append(numberOfTuples);
+        }
+        if (layout == Layout.HASHED_N_TUPLE) {
+            effective.append(" shortObjectRoot=").append(shortObjectRoot);
+        }
+        return effective
+                .append(" digestAlgorithm=")
+                .append(digestAlgorithm.getOcflName())
+                .toString();
+    }
+}
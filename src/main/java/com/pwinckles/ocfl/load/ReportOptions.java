@@ -0,0 +1,52 @@
+package com.pwinckles.ocfl.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import picocli.CommandLine;
+
+/**
+ * Options that control how results are reported while a load test is running.
+ */
+public class ReportOptions {
+
+    @CommandLine.Option(
+            names = "--report-interval",
+            description = "How often to report interval throughput and latency. ISO-8601 duration format, eg PT1M.",
+            defaultValue = "PT1M",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private Duration reportInterval;
+
+    @CommandLine.Option(
+            names = "--report-dir",
+            description = "The directory to write HdrHistogram interval logs and CSV time series to."
+                    + " When not specified, intervals are only logged.")
+    private Path reportDir;
+
+    @CommandLine.Option(
+            names = "--jfr",
+            description = "Record the measured phase of the test with JFR, using the profile settings. The recording"
+                    + " is written to the report directory, which must be specified.")
+    private boolean jfr;
+
+    public IntervalRecorder newIntervalRecorder(String name) {
+        return new IntervalRecorder(name, reportInterval, reportDir);
+    }
+
+    public ResourceSampler newResourceSampler(String name) {
+        return new ResourceSampler(name, reportInterval, reportDir, jfr);
+    }
+
+    public Path reportDir() {
+        return reportDir;
+    }
+
+    public boolean jfr() {
+        return jfr;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportOptions{" + "reportInterval=" + reportInterval + ", reportDir=" + reportDir + ", jfr=" + jfr
+                + '}';
+    }
+}
@@ -0,0 +1,506 @@
+package com.pwinckles.ocfl.load;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples GC, CPU, allocation, and disk I/O at a fixed interval. Values that can't be read on this platform are left
+ * blank.
+ */
+public class ResourceSampler {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceSampler.class);
+
+    private static final String CSV_HEADER = "timestamp,elapsed_s,phase,gc_count,gc_ms,alloc_mb_per_s,process_cpu_pct,"
+            + "system_cpu_pct,process_read_mb_per_s,process_write_mb_per_s,disk_read_mb_per_s,disk_write_mb_per_s,"
+            + "disk_busy_pct";
+
+    private static final Path PROC_SELF_IO = Path.of("/proc/self/io");
+    private static final Path PROC_DISKSTATS = Path.of("/proc/diskstats");
+    private static final Path SYS_BLOCK = Path.of("/sys/block");
+    private static final long SECTOR_SIZE = 512;
+
+    /**
+     * The resources used while measuring. Values that couldn't be read are -1.
+     */
+    public record Totals(
+            long gcCount,
+            long gcMillis,
+            long allocatedBytes,
+            Duration cpuTime,
+            long processReadBytes,
+            long processWriteBytes,
+            long diskReadBytes,
+            long diskWriteBytes,
+            Duration duration) {
+
+        public String summary() {
+            var seconds = duration.toNanos() / 1_000_000_000.0;
+            return String.format(
+                    "gc=%d (%d ms, %.2f%% of wall time) alloc=%s MB/s processCpu=%.2f cores"
+                            + " processRead=%s MB/s processWrite=%s MB/s diskRead=%s MB/s diskWrite=%s MB/s",
+                    gcCount,
+                    gcMillis,
+                    seconds <= 0 ? 0 : gcMillis / 10.0 / seconds,
+                    mbPerSecond(allocatedBytes, duration),
+                    seconds <= 0 ? 0 : cpuTime.toNanos() / 1_000_000_000.0 / seconds,
+                    mbPerSecond(processReadBytes, duration),
+                    mbPerSecond(processWriteBytes, duration),
+                    mbPerSecond(diskReadBytes, duration),
+                    mbPerSecond(diskWriteBytes, duration));
+        }
+
+        private static String mbPerSecond(long bytes, Duration duration) {
+            return bytes < 0 ? "n/a" : String.format("%.2f", Histograms.mbPerSecond(bytes, duration));
+        }
+    }
+
+    /**
+     * Cumulative counters at a point in time. Counters that couldn't be read are -1.
+     */
+    private record Sample(
+            long nanos,
+            long gcCount,
+            long gcMillis,
+            long allocatedBytes,
+            long cpuNanos,
+            long processReadBytes,
+            long processWriteBytes,
+            long diskReadBytes,
+            long diskWriteBytes,
+            Map<String, Long> diskBusyMillis) {}
+
+    private static final class DiskStats {
+        private long readBytes;
+        private long writeBytes;
+        private final Map<String, Long> busyMillis = new HashMap<>();
+    }
+
+    private final String name;
+    private final Duration interval;
+    private final Path reportDir;
+    private final boolean jfr;
+
+    private final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+    private final com.sun.management.OperatingSystemMXBean osBean;
+    private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+    private final int processors = Runtime.getRuntime().availableProcessors();
+    private final List<String> disks;
+    private final NotificationListener gcListener = this::onGc;
+    private final LongAdder collectedBytes = new LongAdder();
+    private boolean gcNotifications;
+    private long initialHeapUsed;
+    private long allocatedBytes;
+
+    private ScheduledExecutorService scheduler;
+    private BufferedWriter csvWriter;
+    private Recording recording;
+
+    private boolean measuring;
+    private long startMillis;
+    private Sample lastSample;
+    private Sample measureStartSample;
+
+    public ResourceSampler(String name, Duration interval, Path reportDir, boolean jfr) {
+        this.name = Objects.requireNonNull(name, "name cannot be null");
+        this.interval = Objects.requireNonNull(interval, "interval cannot be null");
+        this.reportDir = reportDir;
+        this.jfr = jfr;
+
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Interval must be greater than 0.");
+        }
+        if (jfr && reportDir == null) {
+            throw new IllegalArgumentException("A report directory is required to write a JFR recording to.");
+        }
+
+        this.osBean =
+                ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os
+                        ? os
+                        : null;
+        this.disks = listDisks();
+    }
+
+    public synchronized void start() {
+        for (var gcBean : gcBeans) {
+            if (gcBean instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(gcListener, null, null);
+                gcNotifications = true;
+            }
+        }
+        initialHeapUsed = heapUsed();
+
+        startMillis = System.currentTimeMillis();
+        lastSample = sample();
+
+        if (reportDir != null) {
+            try {
+                Files.createDirectories(reportDir);
+                csvWriter = Files.newBufferedWriter(reportDir.resolve(name + ".csv"));
+                csvWriter.write(CSV_HEADER);
+                csvWriter.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, name + "-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(
+                this::reportSafely, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ends the warmup phase, and starts the JFR recording if there is one.
+     */
+    public synchronized void startMeasuring() {
+        // The recording starts with the measured phase, so the time JFR takes to start lands in the first interval
+        if (jfr) {
+            var jfrFile = reportDir.resolve(name + ".jfr");
+            try {
+                recording = new Recording(Configuration.getConfiguration("profile"));
+                recording.setName(name);
+                recording.setToDisk(true);
+                recording.setDestination(jfrFile);
+                recording.start();
+                log.info("Started JFR recording to {}", jfrFile);
+            } catch (IOException | ParseException e) {
+                throw new IllegalStateException("Failed to start JFR recording", e);
+            }
+        }
+
+        report();
+        measuring = true;
+        measureStartSample = lastSample;
+    }
+
+    /**
+     * Stops sampling, reports the final partial interval, and writes the JFR recording.
+     */
+    public synchronized Totals stop() {
+        scheduler.shutdownNow();
+        report();
+
+        for (var gcBean : gcBeans) {
+            if (gcBean instanceof NotificationEmitter emitter) {
+                try {
+                    emitter.removeNotificationListener(gcListener);
+                } catch (ListenerNotFoundException e) {
+                    // Never added
+                }
+            }
+        }
+
+        if (recording != null) {
+            // The recording is written to its destination when it's stopped
+            recording.stop();
+            recording.close();
+            log.info("Wrote JFR recording to {}", reportDir.resolve(name + ".jfr"));
+        }
+        if (csvWriter != null) {
+            try {
+                csvWriter.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
+        }
+
+        var start = measureStartSample == null ? lastSample : measureStartSample;
+        var end = lastSample;
+        return new Totals(
+                delta(end.gcCount(), start.gcCount()),
+                delta(end.gcMillis(), start.gcMillis()),
+                delta(end.allocatedBytes(), start.allocatedBytes()),
+                Duration.ofNanos(Math.max(0, delta(end.cpuNanos(), start.cpuNanos()))),
+                delta(end.processReadBytes(), start.processReadBytes()),
+                delta(end.processWriteBytes(), start.processWriteBytes()),
+                delta(end.diskReadBytes(), start.diskReadBytes()),
+                delta(end.diskWriteBytes(), start.diskWriteBytes()),
+                Duration.ofNanos(end.nanos() - start.nanos()));
+    }
+
+    private void reportSafely() {
+        try {
+            synchronized (this) {
+                report();
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to report {} interval", name, e);
+        }
+    }
+
+    private void report() {
+        var nowMillis = System.currentTimeMillis();
+        var sample = sample();
+        var previous = lastSample;
+        lastSample = sample;
+
+        var intervalDuration = Duration.ofNanos(sample.nanos() - previous.nanos());
+        var intervalNanos = intervalDuration.toNanos();
+        var gcCount = delta(sample.gcCount(), previous.gcCount());
+        var gcMillis = delta(sample.gcMillis(), previous.gcMillis());
+        var allocMbPerSecond = rate(sample.allocatedBytes(), previous.allocatedBytes(), intervalDuration);
+        var processCpu = sample.cpuNanos() < 0 || intervalNanos <= 0
+                ? ""
+                : String.format("%.2f", 100.0 * (sample.cpuNanos() - previous.cpuNanos()) / intervalNanos / processors);
+        var systemCpu =
+                osBean == null || osBean.getCpuLoad() < 0 ? "" : String.format("%.2f", 100.0 * osBean.getCpuLoad());
+        var processRead = rate(sample.processReadBytes(), previous.processReadBytes(), intervalDuration);
+        var processWrite = rate(sample.processWriteBytes(), previous.processWriteBytes(), intervalDuration);
+        var diskRead = rate(sample.diskReadBytes(), previous.diskReadBytes(), intervalDuration);
+        var diskWrite = rate(sample.diskWriteBytes(), previous.diskWriteBytes(), intervalDuration);
+        var diskBusy = diskBusy(sample, previous, intervalDuration);
+        var phase = measuring ? "measure" : "warmup";
+
+        log.info(
+                "{} interval ({}): gc={} ({} ms) alloc={} MB/s processCpu={}% systemCpu={}% processRead={} MB/s"
+                        + " processWrite={} MB/s diskRead={} MB/s diskWrite={} MB/s diskBusy={}%",
+                name,
+                phase,
+                gcCount,
+                gcMillis,
+                orNa(allocMbPerSecond),
+                orNa(processCpu),
+                orNa(systemCpu),
+                orNa(processRead),
+                orNa(processWrite),
+                orNa(diskRead),
+                orNa(diskWrite),
+                orNa(diskBusy));
+
+        if (csvWriter != null) {
+            try {
+                csvWriter.write(String.join(
+                        ",",
+                        Instant.ofEpochMilli(nowMillis).toString(),
+                        String.format("%.3f", (nowMillis - startMillis) / 1000.0),
+                        phase,
+                        String.valueOf(gcCount),
+                        String.valueOf(gcMillis),
+                        allocMbPerSecond,
+                        processCpu,
+                        systemCpu,
+                        processRead,
+                        processWrite,
+                        diskRead,
+                        diskWrite,
+                        diskBusy));
+                csvWriter.newLine();
+                csvWriter.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
+        }
+    }
+
+    private Sample sample() {
+        var nanos = System.nanoTime();
+
+        var gcCount = 0L;
+        var gcMillis = 0L;
+        for (var gcBean : gcBeans) {
+            gcCount += Math.max(0, gcBean.getCollectionCount());
+            gcMillis += Math.max(0, gcBean.getCollectionTime());
+        }
+
+        var processIo = readProcessIo();
+        var diskStats = readDiskStats();
+
+        return new Sample(
+                nanos,
+                gcCount,
+                gcMillis,
+                sampleAllocatedBytes(),
+                osBean == null ? -1 : osBean.getProcessCpuTime(),
+                processIo.getOrDefault("read_bytes", -1L),
+                processIo.getOrDefault("write_bytes", -1L),
+                diskStats == null ? -1 : diskStats.readBytes,
+                diskStats == null ? -1 : diskStats.writeBytes,
+                diskStats == null ? Map.of() : diskStats.busyMillis);
+    }
+
+    /**
+     * Allocation is the growth in heap usage plus the bytes that collections freed.
+     */
+    private long sampleAllocatedBytes() {
+        if (!gcNotifications) {
+            return -1;
+        }
+        allocatedBytes = Math.max(allocatedBytes, collectedBytes.sum() + heapUsed() - initialHeapUsed);
+        return allocatedBytes;
+    }
+
+    private void onGc(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        var gcInfo = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData())
+                .getGcInfo();
+        var before = heapUsed(gcInfo.getMemoryUsageBeforeGc());
+        var after = heapUsed(gcInfo.getMemoryUsageAfterGc());
+        collectedBytes.add(Math.max(0, before - after));
+    }
+
+    private long heapUsed() {
+        return heapPools.stream().mapToLong(pool -> pool.getUsage().getUsed()).sum();
+    }
+
+    private long heapUsed(Map<String, MemoryUsage> usageByPool) {
+        return heapPools.stream()
+                .map(pool -> usageByPool.get(pool.getName()))
+                .filter(Objects::nonNull)
+                .mapToLong(MemoryUsage::getUsed)
+                .sum();
+    }
+
+    private static Map<String, Long> readProcessIo() {
+        var values = new HashMap<String, Long>();
+        try {
+            for (var line : Files.readAllLines(PROC_SELF_IO)) {
+                var parts = line.split(":\\s*");
+                if (parts.length == 2) {
+                    values.put(parts[0], Long.parseLong(parts[1].trim()));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not available on this platform
+        }
+        return values;
+    }
+
+    private DiskStats readDiskStats() {
+        if (disks.isEmpty()) {
+            return null;
+        }
+        try {
+            var stats = new DiskStats();
+            for (var line : Files.readAllLines(PROC_DISKSTATS)) {
+                var fields = line.trim().split("\\s+");
+                if (fields.length < 13 || !disks.contains(fields[2])) {
+                    continue;
+                }
+                stats.readBytes += Long.parseLong(fields[5]) * SECTOR_SIZE;
+                stats.writeBytes += Long.parseLong(fields[9]) * SECTOR_SIZE;
+                stats.busyMillis.put(fields[2], Long.parseLong(fields[12]));
+            }
+            return stats;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Only devices that no other device is stacked on are counted, so that the I/O of LVM, LUKS, and RAID devices isn't
+     * counted again on the disks under them.
+     */
+    private static List<String> listDisks() {
+        try (Stream<Path> devices = Files.list(SYS_BLOCK)) {
+            return devices.filter(device -> {
+                        var name = device.getFileName().toString();
+                        return !name.startsWith("loop") && !name.startsWith("ram") && !hasHolders(device);
+                    })
+                    .map(device -> device.getFileName().toString())
+                    .toList();
+        } catch (IOException | RuntimeException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * A disk is held when a device is stacked on it or on any of its partitions.
+     */
+    private static boolean hasHolders(Path device) {
+        var name = device.getFileName().toString();
+        try (Stream<Path> children = Files.list(device)) {
+            var partitions = children.filter(
+                            child -> child.getFileName().toString().startsWith(name))
+                    .toList();
+            if (isHeld(device)) {
+                return true;
+            }
+            for (var partition : partitions) {
+                if (isHeld(partition)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+
+    private static boolean isHeld(Path device) throws IOException {
+        var holders = device.resolve("holders");
+        if (!Files.isDirectory(holders)) {
+            return false;
+        }
+        try (Stream<Path> entries = Files.list(holders)) {
+            return entries.findAny().isPresent();
+        }
+    }
+
+    private static String diskBusy(Sample sample, Sample previous, Duration intervalDuration) {
+        var intervalMillis = intervalDuration.toMillis();
+        if (sample.diskBusyMillis().isEmpty() || intervalMillis <= 0) {
+            return "";
+        }
+        var busiest = 0L;
+        for (var entry : sample.diskBusyMillis().entrySet()) {
+            var before = previous.diskBusyMillis().get(entry.getKey());
+            if (before != null) {
+                busiest = Math.max(busiest, entry.getValue() - before);
+            }
+        }
+        return String.format("%.2f", Math.min(100.0, 100.0 * busiest / intervalMillis));
+    }
+
+    private static String rate(long value, long previous, Duration intervalDuration) {
+        if (value < 0 || previous < 0) {
+            return "";
+        }
+        return String.format("%.2f", Histograms.mbPerSecond(value - previous, intervalDuration));
+    }
+
+    private static long delta(long value, long previous) {
+        return value < 0 || previous < 0 ? -1 : value - previous;
+    }
+
+    private static String orNa(String value) {
+        return value.isEmpty() ? "n/a" : value;
+    }
+}
@@ -0,0 +1,64 @@
+package com.pwinckles.ocfl.load;
+
+import software.amazon.awssdk.services.s3.S3CrtAsyncClientBuilder;
+
+/**
+ * Transfer settings for the CRT S3 client. Settings that are null are left at the client's defaults.
+ */
+public record S3ClientTuning(
+        Double targetThroughputInGbps,
+        Integer maxConcurrency,
+        Long minimumPartSizeInBytes,
+        Long initialReadBufferSizeInBytes) {
+
+    public static final double DEFAULT_TARGET_THROUGHPUT_IN_GBPS = 10;
+
+    public static final long DEFAULT_MINIMUM_PART_SIZE_IN_BYTES = 8 * 1024 * 1024;
+
+    public static final int DEFAULT_READ_BUFFER_PARTS = 10;
+
+    public static final S3ClientTuning DEFAULTS = new S3ClientTuning(null, null, null, null);
+
+    public S3ClientTuning {
+        if (targetThroughputInGbps != null && targetThroughputInGbps <= 0) {
+            throw new IllegalArgumentException("Target throughput must be greater than 0.");
+        }
+        if (maxConcurrency != null && maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be 1 or more.");
+        }
+        if (minimumPartSizeInBytes != null && minimumPartSizeInBytes < 1) {
+            throw new IllegalArgumentException("Minimum part size must be 1 byte or more.");
+        }
+        if (initialReadBufferSizeInBytes != null && initialReadBufferSizeInBytes < 1) {
+            throw new IllegalArgumentException("Initial read buffer size must be 1 byte or more.");
+        }
+    }
+
+    public S3CrtAsyncClientBuilder apply(S3CrtAsyncClientBuilder builder) {
+        if (targetThroughputInGbps != null) {
+            builder.targetThroughputInGbps(targetThroughputInGbps);
+        }
+        if (maxConcurrency != null) {
+            builder.maxConcurrency(maxConcurrency);
+        }
+        if (minimumPartSizeInBytes != null) {
+            builder.minimumPartSizeInBytes(minimumPartSizeInBytes);
+        }
+        if (initialReadBufferSizeInBytes != null) {
+            builder.initialReadBufferSizeInBytes(initialReadBufferSizeInBytes);
+        }
+        return builder;
+    }
+
+    public String effective() {
+        var partSize = minimumPartSizeInBytes != null ? minimumPartSizeInBytes : DEFAULT_MINIMUM_PART_SIZE_IN_BYTES;
+        return "targetThroughputInGbps="
+                + (targetThroughputInGbps != null ? targetThroughputInGbps : DEFAULT_TARGET_THROUGHPUT_IN_GBPS)
+                + " maxConcurrency=" + (maxConcurrency != null ? maxConcurrency : "auto")
+                + " minimumPartSizeInBytes=" + partSize
+                + " initialReadBufferSizeInBytes="
+                + (initialReadBufferSizeInBytes != null
+                        ? initialReadBufferSizeInBytes
+                        : partSize * DEFAULT_READ_BUFFER_PARTS);
+    }
+}
@@ -0,0 +1,92 @@
+package com.pwinckles.ocfl.load;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import picocli.CommandLine;
+
+/**
+ * Options that tune the CRT S3 client. Every combination of the values is a separate {@link S3ClientTuning}.
+ */
+public class S3TuningOptions {
+
+    @CommandLine.Option(
+            names = "--s3-target-throughput",
+            split = ",",
+            description = "The throughput in Gbps that the CRT S3 client targets. It's used to size the client's"
+                    + " connection pool. Defaults to " + S3ClientTuning.DEFAULT_TARGET_THROUGHPUT_IN_GBPS + ".")
+    private List<Double> targetThroughputInGbps;
+
+    @CommandLine.Option(
+            names = "--s3-max-concurrency",
+            split = ",",
+            description = "The maximum number of concurrent requests the CRT S3 client makes. By default, it's"
+                    + " derived from the target throughput.")
+    private List<Integer> maxConcurrency;
+
+    @CommandLine.Option(
+            names = "--s3-part-size",
+            split = ",",
+            description = "The part size the CRT S3 client uses for multipart uploads and ranged downloads,"
+                    + " eg 16MB. Defaults to 8MB.")
+    private List<String> minimumPartSize;
+
+    @CommandLine.Option(
+            names = "--s3-read-buffer-size",
+            split = ",",
+            description = "The number of bytes the CRT S3 client buffers ahead of a download's consumer, eg 64MB."
+                    + " Defaults to " + S3ClientTuning.DEFAULT_READ_BUFFER_PARTS + " times the part size.")
+    private List<String> initialReadBufferSize;
+
+    public boolean isSet() {
+        return targetThroughputInGbps != null
+                || maxConcurrency != null
+                || minimumPartSize != null
+                || initialReadBufferSize != null;
+    }
+
+    public List<S3ClientTuning> combinations() {
+        var combinations = new ArrayList<S3ClientTuning>();
+        for (var throughput : orDefault(targetThroughputInGbps)) {
+            for (var concurrency : orDefault(maxConcurrency)) {
+                for (var partSize : orDefault(sizes(minimumPartSize))) {
+                    for (var readBufferSize : orDefault(sizes(initialReadBufferSize))) {
+                        combinations.add(new S3ClientTuning(throughput, concurrency, partSize, readBufferSize));
+                    }
+                }
+            }
+        }
+        return combinations;
+    }
+
+    public S3ClientTuning single() {
+        var combinations = combinations();
+        if (combinations.size() != 1) {
+            throw new IllegalArgumentException("Only one value may be specified for each S3 client tuning option.");
+        }
+        return combinations.get(0);
+    }
+
+    private static List<Long> sizes(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        return values.stream().map(FileSpec::parseSize).toList();
+    }
+
+    private static <T> List<T> orDefault(List<T> values) {
+        if (values == null || values.isEmpty()) {
+            return Arrays.asList((T) null);
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return "S3TuningOptions{" + "targetThroughputInGbps="
+                + targetThroughputInGbps + ", maxConcurrency="
+                + maxConcurrency + ", minimumPartSize="
+                + minimumPartSize + ", initialReadBufferSize="
+                + initialReadBufferSize + '}';
+    }
+}
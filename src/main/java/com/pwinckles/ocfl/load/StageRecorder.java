@@ -0,0 +1,71 @@
+package com.pwinckles.ocfl.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Records how long each stage of an object write takes. Durations that are reported on a thread that is not
+ * writing an object are ignored.
+ */
+public class StageRecorder {
+
+    public enum Stage {
+        STAGING_COPY,
+        INVENTORY_SERIALIZATION,
+        STORE,
+        INVENTORY_INSTALL
+    }
+
+    private final Map<Stage, Histogram> histograms;
+    private final ThreadLocal<Map<Stage, Long>> current = new ThreadLocal<>();
+
+    public StageRecorder() {
+        histograms = new EnumMap<>(Stage.class);
+        for (var stage : Stage.values()) {
+            histograms.put(stage, new ConcurrentHistogram(3));
+        }
+    }
+
+    public void start() {
+        current.set(new EnumMap<>(Stage.class));
+    }
+
+    public void add(Stage stage, long nanos) {
+        var durations = current.get();
+        if (durations != null) {
+            durations.merge(stage, nanos, Long::sum);
+        }
+    }
+
+    /**
+     * The total of the stages recorded so far for the object write that's in progress on the current thread.
+     */
+    public long recorded() {
+        var durations = current.get();
+        if (durations == null) {
+            return 0;
+        }
+        return durations.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Stages that didn't run aren't recorded.
+     */
+    public void finish() {
+        var durations = current.get();
+        if (durations != null) {
+            current.remove();
+            durations.forEach((stage, nanos) -> histograms.get(stage).recordValue(nanos));
+        }
+    }
+
+    public void reset() {
+        histograms.values().forEach(Histogram::reset);
+    }
+
+    public Histogram histogram(Stage stage) {
+        return histograms.get(stage);
+    }
+}
@@ -0,0 +1,181 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.api.OcflRepository;
+import io.ocfl.core.util.FileUtil;
+import java.nio.file.Path;
+import java.time.Duration;
+import picocli.CommandLine;
+
+/**
+ * Storage options that are shared by all of the load test commands.
+ */
+public class StorageOptions implements AutoCloseable {
+
+    @CommandLine.Option(names = "--dir", description = "The path to the directory to create the OCFL repository in.")
+    private Path directory;
+
+    @CommandLine.ArgGroup(exclusive = false)
+    private S3Options s3Options;
+
+    @CommandLine.ArgGroup(exclusive = false)
+    private LocalS3Options localS3Options;
+
+    private LocalS3Server localS3Server;
+
+    static class S3Options {
+        @CommandLine.Option(names = "--s3-region", description = "The AWS region.", required = true)
+        private String s3Region;
+
+        @CommandLine.Option(
+                names = "--s3-bucket",
+                description = "The name of the S3 bucket to write to.",
+                required = true)
+        private String s3Bucket;
+
+        @CommandLine.Option(
+                names = "--s3-prefix",
+                description = "The prefix within the bucket to create the OCFL repo in.")
+        private String s3Prefix;
+
+        @CommandLine.Option(
+                names = "--s3-profile",
+                description = "The name of the profile to load the credentials from.",
+                showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+        private String s3Profile;
+
+        @CommandLine.Option(
+                names = "--s3-endpoint",
+                description = "The S3 endpoint. This only needs to be specified when using a non-AWS endpoint.")
+        private String s3Endpoint;
+
+        @Override
+        public String toString() {
+            return "S3Options{" + "s3Region='"
+                    + s3Region + '\'' + ", s3Bucket='"
+                    + s3Bucket + '\'' + ", s3Prefix='"
+                    + s3Prefix + '\'' + ", s3Profile='"
+                    + s3Profile + '\'' + ", s3Endpoint='"
+                    + s3Endpoint + '\'' + '}';
+        }
+    }
+
+    static class LocalS3Options {
+        @CommandLine.Option(
+                names = "--s3-local",
+                description = "The directory to store objects in for an S3-compatible endpoint that's started in"
+                        + " the tester's process. The repository is written to it with the CRT S3 client, so that S3"
+                        + " behavior can be tested without AWS.",
+                required = true)
+        private Path directory;
+
+        @CommandLine.Option(
+                names = "--s3-local-latency",
+                description = "The time the local S3 endpoint waits before handling each request, eg 'PT0.02S'."
+                        + " The default is the endpoint's minimum latency.",
+                defaultValue = "PT0.001S",
+                showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+        private Duration latency;
+
+        @CommandLine.Option(
+                names = "--s3-local-bandwidth",
+                description = "The maximum MB/s of request and response bodies, shared by all requests to the local"
+                        + " S3 endpoint. 0 is unlimited.",
+                defaultValue = "0",
+                showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+        private double bandwidth;
+
+        @CommandLine.Option(
+                names = "--s3-local-error-rate",
+                description = "The fraction of requests to the local S3 endpoint that fail with 500 InternalError.",
+                defaultValue = "0",
+                showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+        private double errorRate;
+
+        @CommandLine.Option(
+                names = "--s3-local-throttle-rate",
+                description = "The fraction of requests to the local S3 endpoint that fail with 503 SlowDown.",
+                defaultValue = "0",
+                showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+        private double throttleRate;
+
+        @Override
+        public String toString() {
+            return "LocalS3Options{" + "directory="
+                    + directory + ", latency="
+                    + latency + ", bandwidth="
+                    + bandwidth + ", errorRate="
+                    + errorRate + ", throttleRate="
+                    + throttleRate + '}';
+        }
+    }
+
+    /**
+     * When the storage is a local S3 endpoint, it runs until {@link #close()} is called.
+     */
+    public OcflRepository buildRepo(Path tempDir, S3ClientTuning tuning, RepoConfig config) {
+        if (directory != null) {
+            return RepoBuilder.buildFsRepo(directory, config);
+        } else if (localS3Options != null) {
+            // Every repository that's built shares the endpoint, so that a sweep runs against a single endpoint
+            if (localS3Server == null) {
+                localS3Server = new LocalS3Server(
+                        localS3Options.directory,
+                        localS3Options.latency,
+                        localS3Options.bandwidth,
+                        localS3Options.errorRate,
+                        localS3Options.throttleRate);
+            }
+            return RepoBuilder.buildLocalS3Repo(localS3Server, tuning, tempDir, config);
+        } else {
+            var location = new RepoBuilder.S3Location(
+                    s3Options.s3Profile,
+                    s3Options.s3Region,
+                    s3Options.s3Endpoint,
+                    s3Options.s3Bucket,
+                    s3Options.s3Prefix);
+            return RepoBuilder.buildS3Repo(location, tuning, tempDir, config);
+        }
+    }
+
+    public void cleanup(Path tempDir) {
+        if (directory != null) {
+            FileUtil.safeDeleteDirectory(directory.resolve(RepoBuilder.ROOT));
+            FileUtil.safeDeleteDirectory(directory.resolve(RepoBuilder.WORK));
+        } else if (localS3Server != null) {
+            localS3Server.clear();
+            FileUtil.safeDeleteDirectory(tempDir.resolve(RepoBuilder.WORK));
+        } else {
+            FileUtil.safeDeleteDirectory(tempDir.resolve(RepoBuilder.WORK));
+        }
+    }
+
+    public boolean isS3() {
+        return directory == null;
+    }
+
+    public Path workParent(Path tempDir) {
+        return directory != null ? directory : tempDir;
+    }
+
+    public String storageType() {
+        if (directory != null) {
+            return "fs";
+        }
+        return localS3Options != null ? "s3-local" : "s3";
+    }
+
+    @Override
+    public void close() {
+        if (localS3Server != null) {
+            localS3Server.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StorageOptions{" + "directory="
+                + directory + ", s3Options="
+                + s3Options + ", localS3Options="
+                + localS3Options + '}';
+    }
+}
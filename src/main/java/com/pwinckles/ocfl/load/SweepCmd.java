@@ -0,0 +1,515 @@
+package com.pwinckles.ocfl.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+@CommandLine.Command(
+        name = "sweep",
+        description =
+                """
+                Runs new-obj-test once for every combination of threads, processing threads, file specs, content sources, \
+                repository settings, and storage, and writes the results to sweep.json and sweep.csv along with JVM, CPU, and disk metadata. \
+                Generated test objects are reused by every run with the same file spec.
+
+                The results are rewritten after every combination, so an interrupted sweep keeps the combinations \
+                that completed. A combination that fails is recorded with its error and the sweep moves on to the \
+                next one. The command exits with code 1 if any combination failed.
+
+                Arguments after '--' are passed to every run of new-obj-test, eg \
+                '-- --iterations 100 --warmup 5 --temp /tmp/load'.
+
+                When a baseline sweep.json is given, every combination that's in the baseline is compared with it, \
+                and the command exits with code 2 if throughput or p99 latency regressed significantly. The baseline \
+                must have been run with the same arguments after '--'.""",
+        mixinStandardHelpOptions = true)
+public class SweepCmd implements Callable<Integer> {
+
+    private static final Logger log = LoggerFactory.getLogger(SweepCmd.class);
+
+    static final int FAILURE_EXIT_CODE = 1;
+    static final int REGRESSION_EXIT_CODE = 2;
+
+    private static final String CSV_HEADER = "storage,storageType,fileSpec,content,threads,processingThreads,s3Client,"
+            + "repoSettings,prefixes,repetitions,meanMbPerSecond,stdDevMbPerSecond,meanOpsPerSecond,"
+            + "meanWriteAmplification,count,p50Millis,p90Millis,p99Millis,p999Millis,maxMillis,error";
+    private static final String COMPARISON_CSV_HEADER = "key,baselineMbPerSecond,mbPerSecond,throughputChange,"
+            + "throughputP,throughputRegression,baselineP99Millis,p99Millis,p99Change,p99P,p99Regression";
+
+    @CommandLine.Option(
+            names = "--threads",
+            split = ",",
+            description = "A comma separated list of test thread counts.",
+            required = true)
+    private List<Integer> threads;
+
+    @CommandLine.Option(
+            names = "--processing-threads",
+            split = ",",
+            description = "A comma separated list of processing thread counts.",
+            required = true)
+    private List<Integer> processingThreads;
+
+    @CommandLine.Option(
+            names = "--file-spec",
+            description = "A file spec to test, as a comma separated list of the file size and count pairs that"
+                    + " new-obj-test accepts with --files, eg '256KB=1000,100MB=10'. May be repeated.",
+            required = true)
+    private List<String> fileSpecs;
+
+    @CommandLine.Option(
+            names = "--storage",
+            description = "The new-obj-test storage arguments to test, separated by spaces, eg '--dir /data/repo' or"
+                    + " '--s3-local /data/s3 --s3-local-latency PT0.02S'. S3 client tuning options may be included,"
+                    + " and every combination of their values is tested. May be repeated.",
+            required = true)
+    private List<String> storages;
+
+    @CommandLine.Option(
+            names = "--repo",
+            description = "The new-obj-test repository arguments to test, separated by spaces, eg '--layout FLAT' or"
+                    + " '--layout-tuples 2 --digest-algorithm sha256'. May be repeated. Defaults to the repository"
+                    + " defaults.")
+    private List<String> repos;
+
+    @CommandLine.Option(
+            names = "--content",
+            split = ",",
+            description = "A comma separated list of the new-obj-test --content values to test, eg 'FIXTURE,MOVE' to"
+                    + " compare copying test objects into the repository with moving clones of them. Valid values:"
+                    + " ${COMPLETION-CANDIDATES}.",
+            defaultValue = "FIXTURE",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private List<NewObjectLoadTest.ContentSource> contents;
+
+    @CommandLine.Option(
+            names = "--repetitions",
+            description = "The number of times to run every combination. Regressions can only be tested with 2 or"
+                    + " more repetitions in both the baseline and the current sweep.",
+            defaultValue = "3",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private int repetitions;
+
+    @CommandLine.Option(names = "--output", description = "The directory to write the results to.", required = true)
+    private Path outputDir;
+
+    @CommandLine.Option(
+            names = "--baseline",
+            description = "A sweep.json from an earlier sweep to compare the results with.")
+    private Path baseline;
+
+    @CommandLine.Option(
+            names = "--significance",
+            description = "The p-value below which a change is significant.",
+            defaultValue = "0.05",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private double significance;
+
+    @CommandLine.Option(
+            names = "--min-change",
+            description = "The smallest relative change in throughput or p99 latency that's flagged as a regression,"
+                    + " eg 0.05 for 5%.",
+            defaultValue = "0.05",
+            showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private double minChange;
+
+    @CommandLine.Parameters(description = "Arguments that are passed to every run of new-obj-test.")
+    private List<String> testArgs = new ArrayList<>();
+
+    private record Failure(
+            String storage,
+            String repo,
+            String fileSpec,
+            String content,
+            int threads,
+            int processingThreads,
+            String error) {}
+
+    private record Baseline(List<String> testArgs, List<SweepResult> results) {}
+
+    @Override
+    public Integer call() {
+        log.info("Running sweep with config: {}", this);
+
+        if (repetitions < 1) {
+            throw new IllegalArgumentException("Repetitions must be 1 or more.");
+        }
+
+        // Fail before running anything if the baseline can't be read or isn't comparable
+        var baselineSweep = baseline == null ? null : readBaseline(baseline);
+        if (baselineSweep != null && !baselineSweep.testArgs().equals(testArgs)) {
+            throw new IllegalArgumentException(String.format(
+                    "The baseline was run with different new-obj-test arguments, so its results can't be compared."
+                            + " Baseline: %s Current: %s",
+                    baselineSweep.testArgs(),
+                    testArgs));
+        }
+        var regressionCheck = new RegressionCheck(significance, minChange);
+
+        var start = Instant.now();
+        var results = new ArrayList<SweepResult>();
+        var failures = new ArrayList<Failure>();
+
+        try (var fixturePool = new FixturePool()) {
+            for (var storage : storages) {
+                for (var repo : repos == null ? List.of("") : repos) {
+                    for (var fileSpec : fileSpecs) {
+                        for (var content : contents) {
+                            for (var threadCount : threads) {
+                                for (var processingThreadCount : processingThreads) {
+                                    try {
+                                        results.addAll(runCombination(
+                                                fixturePool,
+                                                storage,
+                                                repo,
+                                                fileSpec,
+                                                content,
+                                                threadCount,
+                                                processingThreadCount));
+                                    } catch (RuntimeException e) {
+                                        log.error(
+                                                "Sweep combination failed: storage='{}' repo='{}' files='{}' content={}"
+                                                        + " threads={} processingThreads={}",
+                                                storage,
+                                                repo,
+                                                fileSpec,
+                                                content,
+                                                threadCount,
+                                                processingThreadCount,
+                                                e);
+                                        failures.add(new Failure(
+                                                storage,
+                                                repo,
+                                                fileSpec,
+                                                content.name(),
+                                                threadCount,
+                                                processingThreadCount,
+                                                String.valueOf(e)));
+                                    }
+                                    writeResults(results, failures, start, Instant.now());
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        var end = Instant.now();
+        writeResults(results, failures, start, end);
+        logResults(results, failures, Duration.between(start, end));
+
+        if (baselineSweep != null) {
+            var comparisons = regressionCheck.compare(baselineSweep.results(), results);
+            writeComparisons(comparisons);
+            logComparisons(comparisons, results.size());
+            if (comparisons.stream().anyMatch(RegressionCheck.Comparison::regression)) {
+                return REGRESSION_EXIT_CODE;
+            }
+        }
+
+        return failures.isEmpty() ? 0 : FAILURE_EXIT_CODE;
+    }
+
+    /**
+     * When the storage arguments include more than one S3 client tuning, each tuning is a separate result.
+     */
+    private List<SweepResult> runCombination(
+            FixturePool fixturePool,
+            String storage,
+            String repo,
+            String fileSpec,
+            NewObjectLoadTest.ContentSource content,
+            int threadCount,
+            int processingThreadCount) {
+        var byTuning = new LinkedHashMap<String, List<NewObjectLoadTestCmd.RunResult>>();
+
+        for (var repetition = 1; repetition <= repetitions; repetition++) {
+            log.info(
+                    "Sweep run: storage='{}' repo='{}' files='{}' content={} threads={} processingThreads={}"
+                            + " repetition={}/{}",
+                    storage,
+                    repo,
+                    fileSpec,
+                    content,
+                    threadCount,
+                    processingThreadCount,
+                    repetition,
+                    repetitions);
+
+            var args = new ArrayList<>(testArgs);
+            args.addAll(List.of("--content", content.name()));
+            args.addAll(List.of("--threads", String.valueOf(threadCount)));
+            args.addAll(List.of("--processing-threads", String.valueOf(processingThreadCount)));
+            for (var files : fileSpec.split(",")) {
+                args.addAll(List.of("--files", files.trim()));
+            }
+            args.addAll(splitArgs(repo));
+            args.addAll(splitArgs(storage));
+
+            var cmd = new NewObjectLoadTestCmd();
+            new CommandLine(cmd).parseArgs(args.toArray(String[]::new));
+
+            for (var runResult : cmd.run(fixturePool)) {
+                var s3Client = "fs".equals(runResult.storageType())
+                        ? null
+                        : runResult.tuning().effective();
+                byTuning.computeIfAbsent(String.valueOf(s3Client), k -> new ArrayList<>())
+                        .add(runResult);
+            }
+        }
+
+        var results = new ArrayList<SweepResult>();
+        for (var runResults : byTuning.values()) {
+            var first = runResults.get(0);
+            results.add(new SweepResult(
+                    storage,
+                    first.storageType(),
+                    fileSpec,
+                    content.name(),
+                    threadCount,
+                    processingThreadCount,
+                    "fs".equals(first.storageType()) ? null : first.tuning().effective(),
+                    first.repoSettings().effective(),
+                    runResults.get(runResults.size() - 1).prefixes(),
+                    runResults.stream()
+                            .map(NewObjectLoadTestCmd.RunResult::mbPerSecond)
+                            .toList(),
+                    runResults.stream()
+                            .map(NewObjectLoadTestCmd.RunResult::opsPerSecond)
+                            .toList(),
+                    runResults.stream()
+                            .map(NewObjectLoadTestCmd.RunResult::writeAmplification)
+                            .toList(),
+                    runResults.stream()
+                            .map(runResult -> runResult.totals().histogram())
+                            .toList()));
+        }
+        return results;
+    }
+
+    private void writeResults(List<SweepResult> results, List<Failure> failures, Instant start, Instant end) {
+        var json = new LinkedHashMap<String, Object>();
+        json.put("start", start.toString());
+        json.put("end", end.toString());
+        json.put("repetitions", repetitions);
+        json.put("testArgs", testArgs);
+        json.put("environment", EnvironmentInfo.collect(localPaths()));
+        json.put("results", results.stream().map(SweepResult::toJson).toList());
+        json.put("failures", failures);
+
+        var csv = new StringBuilder(CSV_HEADER).append('\n');
+        for (var result : results) {
+            csv.append(String.join(
+                            ",",
+                            csvValue(result.storage()),
+                            result.storageType(),
+                            csvValue(result.fileSpec()),
+                            result.content(),
+                            String.valueOf(result.threads()),
+                            String.valueOf(result.processingThreads()),
+                            csvValue(result.s3Client()),
+                            csvValue(result.repoSettings()),
+                            csvValue(result.prefixes()),
+                            String.valueOf(result.mbPerSecond().size()),
+                            format(result.meanMbPerSecond()),
+                            format(result.stdDevMbPerSecond()),
+                            format(result.meanOpsPerSecond()),
+                            format(result.meanWriteAmplification()),
+                            String.valueOf(result.histogram().getTotalCount()),
+                            format(result.percentileMillis(50)),
+                            format(result.percentileMillis(90)),
+                            format(result.percentileMillis(99)),
+                            format(result.percentileMillis(99.9)),
+                            format(Histograms.millis(result.histogram().getMaxValue())),
+                            ""))
+                    .append('\n');
+        }
+        for (var failure : failures) {
+            csv.append(String.join(
+                            ",",
+                            csvValue(failure.storage()),
+                            "",
+                            csvValue(failure.fileSpec()),
+                            failure.content(),
+                            String.valueOf(failure.threads()),
+                            String.valueOf(failure.processingThreads()),
+                            "",
+                            csvValue(failure.repo()),
+                            "",
+                            "0",
+                            "",
+                            "",
+                            "",
+                            "",
+                            "",
+                            "",
+                            "",
+                            "",
+                            "",
+                            "",
+                            csvValue(failure.error())))
+                    .append('\n');
+        }
+
+        try {
+            Files.createDirectories(outputDir);
+            objectMapper().writeValue(outputDir.resolve("sweep.json").toFile(), json);
+            Files.writeString(outputDir.resolve("sweep.csv"), csv);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+
+    private void writeComparisons(List<RegressionCheck.Comparison> comparisons) {
+        var csv = new StringBuilder(COMPARISON_CSV_HEADER).append('\n');
+        for (var comparison : comparisons) {
+            csv.append(String.join(
+                            ",",
+                            csvValue(comparison.key()),
+                            format(comparison.baseline().meanMbPerSecond()),
+                            format(comparison.current().meanMbPerSecond()),
+                            format(comparison.throughputChange()),
+                            format(comparison.throughputP()),
+                            String.valueOf(comparison.throughputRegression()),
+                            format(comparison.baseline().meanP99Millis()),
+                            format(comparison.current().meanP99Millis()),
+                            format(comparison.p99Change()),
+                            format(comparison.p99P()),
+                            String.valueOf(comparison.p99Regression())))
+                    .append('\n');
+        }
+
+        try {
+            Files.writeString(outputDir.resolve("comparison.csv"), csv);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+
+    private static void logResults(List<SweepResult> results, List<Failure> failures, Duration duration) {
+        var table = new StringBuilder();
+        for (var result : results) {
+            table.append(String.format(
+                    "%10.2f MB/s (sd %.2f) p99=%.3f written/logical=%.3f  %s%n",
+                    result.meanMbPerSecond(),
+                    result.stdDevMbPerSecond(),
+                    result.percentileMillis(99),
+                    result.meanWriteAmplification(),
+                    result.key()));
+        }
+        for (var failure : failures) {
+            table.append(String.format(
+                    "%10s storage=%s files=%s threads=%d processingThreads=%d repo=%s content=%s: %s%n",
+                    "FAILED",
+                    failure.storage(),
+                    failure.fileSpec(),
+                    failure.threads(),
+                    failure.processingThreads(),
+                    failure.repo(),
+                    failure.content(),
+                    failure.error()));
+        }
+        log.info("Sweep completed in {}. p99 in milliseconds:\n{}", duration, table);
+    }
+
+    private static void logComparisons(List<RegressionCheck.Comparison> comparisons, int resultCount) {
+        var table = new StringBuilder();
+        for (var comparison : comparisons) {
+            table.append(String.format(
+                    "%-10s MB/s %+.1f%% (p=%.3f) p99 %+.1f%% (p=%.3f)  %s%n",
+                    comparison.regression() ? "REGRESSED" : "ok",
+                    comparison.throughputChange() * 100,
+                    comparison.throughputP(),
+                    comparison.p99Change() * 100,
+                    comparison.p99P(),
+                    comparison.key()));
+        }
+        var regressions = comparisons.stream()
+                .filter(RegressionCheck.Comparison::regression)
+                .count();
+        log.info(
+                "Compared {} of {} results with the baseline. {} regressed:\n{}",
+                comparisons.size(),
+                resultCount,
+                regressions,
+                table);
+    }
+
+    private List<Path> localPaths() {
+        var paths = new LinkedHashSet<Path>();
+        var args = new ArrayList<>(testArgs);
+        storages.forEach(storage -> args.addAll(splitArgs(storage)));
+        for (var i = 0; i < args.size() - 1; i++) {
+            if (List.of("--temp", "--dir", "--s3-local").contains(args.get(i))) {
+                paths.add(Path.of(args.get(i + 1)));
+            }
+        }
+        return List.copyOf(paths);
+    }
+
+    private static Baseline readBaseline(Path file) {
+        try {
+            var json = objectMapper().readTree(file.toFile());
+            var baselineTestArgs = new ArrayList<String>();
+            json.path("testArgs").forEach(arg -> baselineTestArgs.add(arg.asText()));
+            var results = new ArrayList<SweepResult>();
+            json.path("results").forEach(result -> results.add(SweepResult.fromJson(result)));
+            return new Baseline(baselineTestArgs, results);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+    }
+
+    private static ObjectMapper objectMapper() {
+        return new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    private static List<String> splitArgs(String args) {
+        return Arrays.stream(args.trim().split("\\s+"))
+                .filter(arg -> !arg.isEmpty())
+                .toList();
+    }
+
+    private static String format(double value) {
+        return String.format("%.3f", value);
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public String toString() {
+        return "SweepCmd{" + "threads="
+                + threads + ", processingThreads="
+                + processingThreads + ", fileSpecs="
+                + fileSpecs + ", storages="
+                + storages + ", repos="
+                + repos + ", contents="
+                + contents + ", repetitions="
+                + repetitions + ", outputDir="
+                + outputDir + ", baseline="
+                + baseline + ", significance="
+                + significance + ", minChange="
+                + minChange + ", testArgs="
+                + testArgs + '}';
+    }
+}
@@ -0,0 +1,182 @@
+package com.pwinckles.ocfl.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.HdrHistogram.Histogram;
+
+/**
+ * The results of every repetition of one combination in a sweep.
+ */
+public record SweepResult(
+        String storage,
+        String storageType,
+        String fileSpec,
+        String content,
+        int threads,
+        int processingThreads,
+        String s3Client,
+        String repoSettings,
+        String prefixes,
+        List<Double> mbPerSecond,
+        List<Double> opsPerSecond,
+        List<Double> writeAmplification,
+        List<Histogram> histograms,
+        Histogram histogram) {
+
+    public SweepResult(
+            String storage,
+            String storageType,
+            String fileSpec,
+            String content,
+            int threads,
+            int processingThreads,
+            String s3Client,
+            String repoSettings,
+            String prefixes,
+            List<Double> mbPerSecond,
+            List<Double> opsPerSecond,
+            List<Double> writeAmplification,
+            List<Histogram> histograms) {
+        this(
+                storage,
+                storageType,
+                fileSpec,
+                content,
+                threads,
+                processingThreads,
+                s3Client,
+                repoSettings,
+                prefixes,
+                mbPerSecond,
+                opsPerSecond,
+                writeAmplification,
+                histograms,
+                merge(histograms));
+    }
+
+    public String key() {
+        return "storage=" + storage + " files=" + fileSpec + " threads=" + threads + " processingThreads="
+                + processingThreads + " repo=" + repoSettings + (s3Client == null ? "" : " s3Client=" + s3Client)
+                + " content=" + content;
+    }
+
+    public double meanMbPerSecond() {
+        return mean(mbPerSecond);
+    }
+
+    public double meanOpsPerSecond() {
+        return mean(opsPerSecond);
+    }
+
+    public double meanWriteAmplification() {
+        if (writeAmplification.isEmpty() || writeAmplification.stream().anyMatch(value -> value < 0)) {
+            return -1;
+        }
+        return mean(writeAmplification);
+    }
+
+    public double stdDevMbPerSecond() {
+        if (mbPerSecond.size() < 2) {
+            return 0;
+        }
+        var mean = meanMbPerSecond();
+        var sumSquares = mbPerSecond.stream()
+                .mapToDouble(value -> (value - mean) * (value - mean))
+                .sum();
+        return Math.sqrt(sumSquares / (mbPerSecond.size() - 1));
+    }
+
+    public double percentileMillis(double percentile) {
+        return Histograms.millis(histogram.getValueAtPercentile(percentile));
+    }
+
+    public List<Double> p99Millis() {
+        return histograms.stream()
+                .map(repetition -> Histograms.millis(repetition.getValueAtPercentile(99)))
+                .toList();
+    }
+
+    public double meanP99Millis() {
+        return mean(p99Millis());
+    }
+
+    public Map<String, Object> toJson() {
+        var json = new LinkedHashMap<String, Object>();
+        json.put("key", key());
+        json.put("storage", storage);
+        json.put("storageType", storageType);
+        json.put("fileSpec", fileSpec);
+        json.put("content", content);
+        json.put("threads", threads);
+        json.put("processingThreads", processingThreads);
+        json.put("s3Client", s3Client);
+        json.put("repoSettings", repoSettings);
+        json.put("prefixes", prefixes);
+        json.put("repetitions", mbPerSecond.size());
+        json.put("mbPerSecond", mbPerSecond);
+        json.put("opsPerSecond", opsPerSecond);
+        json.put("meanMbPerSecond", meanMbPerSecond());
+        json.put("stdDevMbPerSecond", stdDevMbPerSecond());
+        json.put("meanOpsPerSecond", meanOpsPerSecond());
+        json.put("writeAmplification", writeAmplification);
+        json.put("meanWriteAmplification", meanWriteAmplification());
+        json.put("count", histogram.getTotalCount());
+        json.put("p50Millis", percentileMillis(50));
+        json.put("p90Millis", percentileMillis(90));
+        json.put("p99Millis", percentileMillis(99));
+        json.put("repetitionP99Millis", p99Millis());
+        json.put("p999Millis", percentileMillis(99.9));
+        json.put("maxMillis", Histograms.millis(histogram.getMaxValue()));
+        json.put("histogram", Histograms.encode(histogram));
+        json.put("histograms", histograms.stream().map(Histograms::encode).toList());
+        return json;
+    }
+
+    public static SweepResult fromJson(JsonNode json) {
+        return new SweepResult(
+                json.path("storage").asText(),
+                json.path("storageType").asText(),
+                json.path("fileSpec").asText(),
+                json.path("content").asText(),
+                json.path("threads").asInt(),
+                json.path("processingThreads").asInt(),
+                json.path("s3Client").isNull() || json.path("s3Client").isMissingNode()
+                        ? null
+                        : json.path("s3Client").asText(),
+                json.path("repoSettings").asText(),
+                json.path("prefixes").asText(),
+                doubles(json.path("mbPerSecond")),
+                doubles(json.path("opsPerSecond")),
+                doubles(json.path("writeAmplification")),
+                histograms(json));
+    }
+
+    private static List<Histogram> histograms(JsonNode json) {
+        var histograms = new ArrayList<Histogram>();
+        json.path("histograms").forEach(encoded -> histograms.add(Histograms.decode(encoded.asText())));
+        // Sweeps from before per-repetition histograms were kept only have the merged histogram
+        if (histograms.isEmpty() && json.hasNonNull("histogram")) {
+            histograms.add(Histograms.decode(json.path("histogram").asText()));
+        }
+        return histograms;
+    }
+
+    private static Histogram merge(List<Histogram> histograms) {
+        var merged = Histograms.newHistogram();
+        histograms.forEach(merged::add);
+        return merged;
+    }
+
+    private static List<Double> doubles(JsonNode array) {
+        var values = new ArrayList<Double>();
+        array.forEach(value -> values.add(value.asDouble()));
+        return values;
+    }
+
+    private static double mean(List<Double> values) {
+        return values.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+    }
+}
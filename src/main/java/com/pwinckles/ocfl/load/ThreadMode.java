@@ -0,0 +1,68 @@
+package com.pwinckles.ocfl.load;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The kind of threads that load tests run their workers and per-file processing tasks on.
+ */
+public enum ThreadMode {
+    PLATFORM,
+    /**
+     * Requires Java 21 or later.
+     */
+    VIRTUAL;
+
+    public ThreadFactory threadFactory(String prefix) {
+        return switch (this) {
+            case PLATFORM -> {
+                var count = new AtomicLong();
+                yield runnable -> new Thread(runnable, prefix + count.getAndIncrement());
+            }
+            case VIRTUAL -> virtualThreadFactory(prefix);
+        };
+    }
+
+    /**
+     * The executor is shared by every worker for the lifetime of the test.
+     */
+    public ExecutorService newProcessingExecutor(int parallelism) {
+        return switch (this) {
+            case PLATFORM -> Executors.newWorkStealingPool(parallelism);
+            case VIRTUAL -> newThreadPerTaskExecutor(virtualThreadFactory("processing-"));
+        };
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw unsupported(e);
+        }
+    }
+
+    /**
+     * Created reflectively so that the tester can still run on Java 17.
+     */
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            var builderClass = Class.forName("java.lang.Thread$Builder");
+            var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw unsupported(e);
+        }
+    }
+
+    private static UnsupportedOperationException unsupported(ReflectiveOperationException e) {
+        return new UnsupportedOperationException(
+                "Virtual threads require Java 21 or later. Running on Java "
+                        + Runtime.version().feature() + ".",
+                e);
+    }
+}
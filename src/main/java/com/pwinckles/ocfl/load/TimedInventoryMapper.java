@@ -0,0 +1,41 @@
+package com.pwinckles.ocfl.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ocfl.core.inventory.InventoryMapper;
+import io.ocfl.core.model.Inventory;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * InventoryMapper that times inventory serialization.
+ */
+public class TimedInventoryMapper extends InventoryMapper {
+
+    private final StageRecorder stageRecorder;
+
+    public TimedInventoryMapper(ObjectMapper objectMapper, StageRecorder stageRecorder) {
+        super(objectMapper);
+        this.stageRecorder = Objects.requireNonNull(stageRecorder, "stageRecorder cannot be null");
+    }
+
+    @Override
+    public void write(Path destination, Inventory inventory) {
+        var start = System.nanoTime();
+        try {
+            super.write(destination, inventory);
+        } finally {
+            stageRecorder.add(StageRecorder.Stage.INVENTORY_SERIALIZATION, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void write(OutputStream outputStream, Inventory inventory) {
+        var start = System.nanoTime();
+        try {
+            super.write(outputStream, inventory);
+        } finally {
+            stageRecorder.add(StageRecorder.Stage.INVENTORY_SERIALIZATION, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.api.exception.LockException;
+import io.ocfl.core.lock.ObjectLock;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * ObjectLock that records how long callers wait to acquire an object's write lock.
+ */
+public class TimedObjectLock implements ObjectLock {
+
+    private final ObjectLock delegate;
+    private final Histogram waitHistogram = new ConcurrentHistogram(3);
+    private final LongAdder timeouts = new LongAdder();
+
+    public TimedObjectLock(ObjectLock delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+    }
+
+    @Override
+    public void doInWriteLock(String objectId, Runnable doInLock) {
+        doInWriteLock(objectId, () -> {
+            doInLock.run();
+            return null;
+        });
+    }
+
+    @Override
+    public <T> T doInWriteLock(String objectId, Callable<T> doInLock) {
+        var acquired = new boolean[1];
+        var start = System.nanoTime();
+        try {
+            return delegate.doInWriteLock(objectId, () -> {
+                acquired[0] = true;
+                waitHistogram.recordValue(System.nanoTime() - start);
+                return doInLock.call();
+            });
+        } catch (LockException e) {
+            if (!acquired[0]) {
+                timeouts.increment();
+            }
+            throw e;
+        }
+    }
+
+    public Histogram waitHistogram() {
+        return waitHistogram;
+    }
+
+    public long timeouts() {
+        return timeouts.sum();
+    }
+
+    public void reset() {
+        waitHistogram.reset();
+        timeouts.reset();
+    }
+}
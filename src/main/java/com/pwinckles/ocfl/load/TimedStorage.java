@@ -0,0 +1,150 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.api.OcflFileRetriever;
+import io.ocfl.api.model.DigestAlgorithm;
+import io.ocfl.core.storage.common.Listing;
+import io.ocfl.core.storage.common.OcflObjectRootDirIterator;
+import io.ocfl.core.storage.common.Storage;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Storage wrapper that times the operations that move a new version into storage and install its inventory.
+ */
+public class TimedStorage implements Storage {
+
+    private static final String INVENTORY_FILE = "inventory.json";
+
+    private final Storage delegate;
+    private final StageRecorder stageRecorder;
+
+    public TimedStorage(Storage delegate, StageRecorder stageRecorder) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+        this.stageRecorder = Objects.requireNonNull(stageRecorder, "stageRecorder cannot be null");
+    }
+
+    @Override
+    public void moveDirectoryInto(Path source, String destination) {
+        var start = System.nanoTime();
+        try {
+            delegate.moveDirectoryInto(source, destination);
+        } finally {
+            stageRecorder.add(StageRecorder.Stage.STORE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void copyFileInternal(String sourceFile, String destinationFile) {
+        var start = System.nanoTime();
+        try {
+            delegate.copyFileInternal(sourceFile, destinationFile);
+        } finally {
+            if (isInventoryFile(destinationFile)) {
+                stageRecorder.add(StageRecorder.Stage.INVENTORY_INSTALL, System.nanoTime() - start);
+            }
+        }
+    }
+
+    @Override
+    public List<Listing> listDirectory(String directoryPath) {
+        return delegate.listDirectory(directoryPath);
+    }
+
+    @Override
+    public List<Listing> listRecursive(String directoryPath) {
+        return delegate.listRecursive(directoryPath);
+    }
+
+    @Override
+    public boolean directoryIsEmpty(String directoryPath) {
+        return delegate.directoryIsEmpty(directoryPath);
+    }
+
+    @Override
+    public OcflObjectRootDirIterator iterateObjects() {
+        return delegate.iterateObjects();
+    }
+
+    @Override
+    public boolean fileExists(String filePath) {
+        return delegate.fileExists(filePath);
+    }
+
+    @Override
+    public InputStream read(String filePath) {
+        return delegate.read(filePath);
+    }
+
+    @Override
+    public String readToString(String filePath) {
+        return delegate.readToString(filePath);
+    }
+
+    @Override
+    public OcflFileRetriever readLazy(String filePath, DigestAlgorithm algorithm, String digest) {
+        return delegate.readLazy(filePath, algorithm, digest);
+    }
+
+    @Override
+    public void write(String filePath, byte[] content, String mediaType) {
+        delegate.write(filePath, content, mediaType);
+    }
+
+    @Override
+    public void createDirectories(String path) {
+        delegate.createDirectories(path);
+    }
+
+    @Override
+    public void copyDirectoryOutOf(String source, Path outputPath) {
+        delegate.copyDirectoryOutOf(source, outputPath);
+    }
+
+    @Override
+    public void copyFileInto(Path source, String destination, String mediaType) {
+        delegate.copyFileInto(source, destination, mediaType);
+    }
+
+    @Override
+    public void moveDirectoryInternal(String source, String destination) {
+        delegate.moveDirectoryInternal(source, destination);
+    }
+
+    @Override
+    public void deleteDirectory(String path) {
+        delegate.deleteDirectory(path);
+    }
+
+    @Override
+    public void deleteFile(String path) {
+        delegate.deleteFile(path);
+    }
+
+    @Override
+    public void deleteFiles(Collection<String> paths) {
+        delegate.deleteFiles(paths);
+    }
+
+    @Override
+    public void deleteEmptyDirsDown(String path) {
+        delegate.deleteEmptyDirsDown(path);
+    }
+
+    @Override
+    public void deleteEmptyDirsUp(String path) {
+        delegate.deleteEmptyDirsUp(path);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private boolean isInventoryFile(String path) {
+        var name = path.substring(path.lastIndexOf('/') + 1);
+        return name.startsWith(INVENTORY_FILE);
+    }
+}
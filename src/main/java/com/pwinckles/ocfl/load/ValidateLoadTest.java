@@ -0,0 +1,291 @@
+package com.pwinckles.ocfl.load;
+
+import io.ocfl.api.OcflRepository;
+import io.ocfl.api.model.ObjectVersionId;
+import io.ocfl.api.model.VersionInfo;
+import io.ocfl.core.util.FileUtil;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validates random objects from a seeded corpus. ocfl-java validates on the calling thread, so that thread's CPU time
+ * is the validation's CPU time and the rest of its latency is waiting.
+ */
+public class ValidateLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidateLoadTest.class);
+
+    public record Results(
+            IntervalRecorder.Totals totals,
+            Histogram cpuHistogram,
+            Histogram waitHistogram,
+            long cpuNanos,
+            long latencyNanos,
+            long invalid,
+            long failures,
+            ResourceSampler.Totals resources) {}
+
+    private final OcflRepository repo;
+    private final int objectCount;
+    private final long iterations;
+    private final long warmupIterations;
+    private final int threadCount;
+    private final boolean contentFixityCheck;
+    private final Map<String, FileSpec.ObjectFile> objectFiles;
+    private final long uniqueObjectSize;
+    private final IntervalRecorder intervalRecorder;
+    private final ResourceSampler resourceSampler;
+
+    private final ObjectGenerator objectGenerator;
+    private final Histogram cpuHistogram = new ConcurrentHistogram(3);
+    private final Histogram waitHistogram = new ConcurrentHistogram(3);
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public ValidateLoadTest(
+            OcflRepository repo,
+            Path tempDir,
+            int objectCount,
+            long iterations,
+            long warmupIterations,
+            int threadCount,
+            boolean contentFixityCheck,
+            Map<String, FileSpec.ObjectFile> objectFiles,
+            long seed,
+            double compressibility,
+            IntervalRecorder intervalRecorder,
+            ResourceSampler resourceSampler) {
+        if (objectCount < 1) {
+            throw new IllegalArgumentException("Object count must be 1 or more.");
+        }
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be 1 or more.");
+        }
+        if (warmupIterations < 1) {
+            throw new IllegalArgumentException("Warmup iterations must be 1 or more.");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be 1 or more.");
+        }
+        if (objectFiles == null || objectFiles.isEmpty()) {
+            throw new IllegalArgumentException("File spec must contain 1 or more files.");
+        }
+
+        this.repo = Objects.requireNonNull(repo);
+        this.objectCount = objectCount;
+        this.iterations = iterations;
+        this.warmupIterations = warmupIterations;
+        this.threadCount = threadCount;
+        this.contentFixityCheck = contentFixityCheck;
+        this.objectFiles = objectFiles;
+        this.uniqueObjectSize = FileSpec.uniqueBytes(objectFiles);
+        this.intervalRecorder = Objects.requireNonNull(intervalRecorder);
+        this.resourceSampler = Objects.requireNonNull(resourceSampler);
+
+        this.objectGenerator = new ObjectGenerator(Objects.requireNonNull(tempDir), seed, compressibility);
+    }
+
+    public Results run() throws InterruptedException {
+        log.info("Starting validate load test");
+
+        var prefix = "validate-" + UUID.randomUUID() + "-";
+        var objectIds = new ArrayList<String>(objectCount);
+        for (var i = 0; i < objectCount; i++) {
+            objectIds.add(prefix + i);
+        }
+
+        intervalRecorder.start();
+        resourceSampler.start();
+
+        IntervalRecorder.Totals totals;
+        ResourceSampler.Totals resources;
+        try {
+            seed(objectIds);
+
+            var threads = new ArrayList<Thread>(threadCount);
+            var phaser = new Phaser(threadCount + 1);
+
+            for (var i = 0; i < threadCount; i++) {
+                threads.add(createThread(objectIds, phaser));
+            }
+
+            threads.forEach(Thread::start);
+
+            phaser.arriveAndAwaitAdvance();
+            cpuHistogram.reset();
+            waitHistogram.reset();
+            cpuNanos.reset();
+            latencyNanos.reset();
+            invalid.reset();
+            failures.reset();
+            intervalRecorder.startMeasuring();
+            resourceSampler.startMeasuring();
+            phaser.arriveAndAwaitAdvance();
+
+            for (var thread : threads) {
+                thread.join();
+            }
+        } finally {
+            try {
+                totals = intervalRecorder.stop();
+                resources = resourceSampler.stop();
+            } finally {
+                purge(objectIds);
+            }
+        }
+
+        log.info("Validate load test complete");
+        return new Results(
+                totals,
+                cpuHistogram,
+                waitHistogram,
+                cpuNanos.sum(),
+                latencyNanos.sum(),
+                invalid.sum(),
+                failures.sum(),
+                resources);
+    }
+
+    private void seed(List<String> objectIds) throws InterruptedException {
+        log.info("Seeding repository with {} objects", objectCount);
+
+        var seedStart = Instant.now();
+        var objectPath = objectGenerator.generate(objectFiles);
+
+        var versionInfo =
+                new VersionInfo().setUser("Peter", "pwinckles@example.com").setMessage("Seeding");
+
+        var executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            var futures = objectIds.stream()
+                    .map(objectId -> executor.submit(
+                            () -> repo.putObject(ObjectVersionId.head(objectId), objectPath, versionInfo)))
+                    .toList();
+            for (var future : futures) {
+                getFuture(future);
+            }
+        } finally {
+            executor.shutdownNow();
+            FileUtil.safeDeleteDirectory(objectPath);
+        }
+
+        log.info("Seeded {} objects in {}", objectCount, Duration.between(seedStart, Instant.now()));
+    }
+
+    private void purge(List<String> objectIds) {
+        log.info("Purging {} seeded objects", objectIds.size());
+        for (var objectId : objectIds) {
+            try {
+                repo.purgeObject(objectId);
+            } catch (RuntimeException e) {
+                log.error("Failed to purge object {}", objectId, e);
+            }
+        }
+    }
+
+    private Thread createThread(List<String> objectIds, Phaser phaser) {
+        return new Thread() {
+            private final String id = UUID.randomUUID().toString();
+
+            @Override
+            public void run() {
+                setName(id);
+                log.info("Starting thread {}", id);
+
+                try {
+                    log.info("Running warmup for {} iterations", warmupIterations);
+                    runInner(warmupIterations);
+
+                    log.info("Warmup complete. Waiting for other threads to finish.");
+                    phaser.arriveAndAwaitAdvance();
+                    phaser.arriveAndAwaitAdvance();
+
+                    log.info("Running validate load test for {} iterations", iterations);
+                    runInner(iterations);
+
+                    log.info("Completed test in thread {}", id);
+                } catch (InterruptedException e) {
+                    log.info("Thread interrupted");
+                } catch (RuntimeException e) {
+                    log.error("Error running test. Thread exiting.", e);
+                }
+            }
+
+            private void runInner(long iterations) throws InterruptedException {
+                var runStart = Instant.now();
+
+                for (long i = 0; i < iterations; i++) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+
+                    var objectId = objectIds.get(ThreadLocalRandom.current().nextInt(objectIds.size()));
+
+                    try {
+                        validateObject(objectId);
+                    } catch (RuntimeException e) {
+                        failures.increment();
+                        log.error("Failed to validate object {}", objectId, e);
+                    }
+                }
+
+                log.info("Run completed in {}", Duration.between(runStart, Instant.now()));
+            }
+        };
+    }
+
+    private void validateObject(String objectId) {
+        var threadBean = ManagementFactory.getThreadMXBean();
+        var cpuStart = threadBean.getCurrentThreadCpuTime();
+        var start = System.nanoTime();
+
+        var results = repo.validateObject(objectId, contentFixityCheck);
+
+        var latency = System.nanoTime() - start;
+        var cpuEnd = threadBean.getCurrentThreadCpuTime();
+
+        // Content isn't read when fixity isn't checked, so there are no bytes to report
+        intervalRecorder.record(latency, contentFixityCheck ? uniqueObjectSize : 0);
+        if (cpuStart >= 0 && cpuEnd >= 0) {
+            // CPU time is measured at a coarser granularity than wall time, so it can appear to exceed it
+            var cpu = Math.min(cpuEnd - cpuStart, latency);
+            cpuHistogram.recordValue(cpu);
+            waitHistogram.recordValue(latency - cpu);
+            cpuNanos.add(cpu);
+            latencyNanos.add(latency);
+        }
+
+        if (results.hasErrors()) {
+            invalid.increment();
+            log.warn("Object {} is invalid: {}", objectId, results.getErrors());
+        }
+    }
+
+    private void getFuture(Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to seed object", e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.pwinckles.ocfl.load;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+@CommandLine.Command(
+        name = "validate-test",
+        description =
+                """
+                Seeds the OCFL repository with a corpus of test objects with characteristics that meet a supplied \
+                specification, and then validates random objects from the corpus as many times as possible, \
+                including checking the fixity of their content. Reports validated MB/s, latency per object, and \
+                how much of each validation was spent on CPU versus waiting on I/O.
+
+                When S3 options are specified, the OCFL repository is created in S3. When --s3-local is \
+                specified, it's created in an S3-compatible endpoint that's started in-process and stores \
+                objects on the local filesystem. Otherwise, it's created in a directory on the local filesystem.""",
+        mixinStandardHelpOptions = true)
+public class ValidateLoadTestCmd implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidateLoadTestCmd.class);
+
+    @CommandLine.Option(
+            names = "--objects",
+            description = "The number of objects to seed the repository with before validating.",
+            required = true)
+    private int objectCount;
+
+    @CommandLine.Option(
+            names = "--iterations",
+            description = "The number of objects to validate in each thread.",
+            required = true)
+    private long iterations;
+
+    @CommandLine.Option(
+            names = "--warmup",
+            description = "The number of objects to validate in each thread as a warmup.",
+            required = true)
+    private long warmupIterations;
+
+    @CommandLine.Option(
+            names = "--threads",
+            description = "The number of threads to run the test on, which is the number of objects that are"
+                    + " validated concurrently.",
+            required = true)
+    private int threadCount;
+
+    @CommandLine.Option(
+            names = "--skip-content-fixity",
+            description = "Validate the structure of objects and their inventories without reading and digesting"
+                    + " their content.")
+    private boolean skipContentFixity;
+
+    @CommandLine.Option(
+            names = "--temp",
+            description = "The directory to use to write files before they're inserted into the repository.",
+            required = true)
+    private Path tempDir;
+
+    @CommandLine.ArgGroup(multiplicity = "1")
+    private StorageOptions storageOptions;
+
+    @CommandLine.Mixin
+    private FileSpecOptions fileSpecOptions;
+
+    @CommandLine.Mixin
+    private RepoOptions repoOptions;
+
+    @CommandLine.Mixin
+    private ReportOptions reportOptions;
+
+    @CommandLine.Mixin
+    private S3TuningOptions s3TuningOptions;
+
+    @Override
+    public void run() {
+        log.info("Running validate load test with config: {}", this);
+
+        try {
+            Files.createDirectories(tempDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+
+        if (s3TuningOptions.isSet() && !storageOptions.isS3()) {
+            throw new IllegalArgumentException("S3 client tuning options only apply to S3 storage.");
+        }
+        var tuning = s3TuningOptions.single();
+
+        var inventoryCache = repoOptions.buildInventoryCache(storageOptions.isS3());
+        var repoSettings = repoOptions.buildRepoSettings();
+        var repo = storageOptions.buildRepo(tempDir, tuning, new RepoConfig(repoSettings, inventoryCache));
+        var objectFiles = fileSpecOptions.sampleObjectFiles();
+        log.info("Test objects: {}", FileSpec.summary(objectFiles));
+
+        var loadTest = new ValidateLoadTest(
+                repo,
+                tempDir,
+                objectCount,
+                iterations,
+                warmupIterations,
+                threadCount,
+                !skipContentFixity,
+                objectFiles,
+                fileSpecOptions.seed(),
+                fileSpecOptions.compressibility(),
+                reportOptions.newIntervalRecorder("validate"),
+                reportOptions.newResourceSampler("resources"));
+
+        try {
+            var results = loadTest.run();
+
+            storageOptions.cleanup(tempDir);
+
+            var totals = results.totals();
+            log.info(
+                    "Validation throughput: {} objects/s {} MB/s. Latency per object in milliseconds:\n{}",
+                    String.format(
+                            "%.3f",
+                            totals.histogram().getTotalCount()
+                                    / (totals.duration().toNanos() / 1e9)),
+                    skipContentFixity
+                            ? "n/a"
+                            : String.format("%.2f", Histograms.mbPerSecond(totals.bytes(), totals.duration())),
+                    Histograms.toMillis(totals.histogram()));
+
+            log.info(
+                    "Time per object in milliseconds:\ncpu:  {}\nwait: {}\nCPU share of validation time: {}%",
+                    Histograms.summary(results.cpuHistogram()),
+                    Histograms.summary(results.waitHistogram()),
+                    String.format(
+                            "%.1f",
+                            results.latencyNanos() == 0 ? 0 : 100.0 * results.cpuNanos() / results.latencyNanos()));
+
+            log.info("Invalid objects: {}. Failed validations: {}", results.invalid(), results.failures());
+
+            log.info("Resources during measurement: {}", results.resources().summary());
+
+            if (storageOptions.isS3()) {
+                log.info("S3 client: {}", tuning.effective());
+            }
+
+            log.info("Repository: {}", repoSettings.effective());
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Load test was interrupted.", e);
+        } finally {
+            repo.close();
+            storageOptions.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ValidateLoadTestCmd{" + "objectCount="
+                + objectCount + ", iterations="
+                + iterations + ", warmupIterations="
+                + warmupIterations + ", threadCount="
+                + threadCount + ", skipContentFixity="
+                + skipContentFixity + ", tempDir="
+                + tempDir + ", storageOptions="
+                + storageOptions + ", fileSpecOptions="
+                + fileSpecOptions + ", repoOptions="
+                + repoOptions + ", reportOptions="
+                + reportOptions + ", s3TuningOptions="
+                + s3TuningOptions + '}';
+    }
+}